@@ -19,6 +19,39 @@ configurations {
     }
 }
 
+// Microbenchmarks (JMH) live in src/jmh and run against the main classes: ./gradlew jmh
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+// OpenRouter simulator and load generator, run standalone against a packaged backend
+val loadtest: SourceSet by sourceSets.creating {
+    // Reuses the recorded completions of the benchmarks
+    resources.srcDir("src/jmh/resources")
+    // The structured output comparison builds its prompts with the main classes
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+// Tests that need a provider start the OpenRouter simulator in-process
+sourceSets.test {
+    compileClasspath += loadtest.output
+    runtimeClasspath += loadtest.output
+}
+
+configurations {
+    named("jmhImplementation") {
+        extendsFrom(configurations.implementation.get())
+    }
+    named("jmhRuntimeOnly") {
+        extendsFrom(configurations.runtimeOnly.get())
+    }
+    named("loadtestImplementation") {
+        extendsFrom(configurations.implementation.get())
+    }
+}
+
 repositories {
     mavenCentral()
     maven { url = uri("https://repo.spring.io/milestone") }
@@ -28,12 +61,14 @@ repositories {
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     // Using direct HTTP client instead of Spring AI for now
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     
-    // Database (commented for now, ready for Supabase)
-    // implementation("org.springframework.boot:spring-boot-starter-data-jpa")
-    // implementation("org.postgresql:postgresql")
+    // Database: plain JDBC for batched writes; embedded H2 by default, PostgreSQL (Supabase) via DATABASE_URL
+    implementation("org.springframework.boot:spring-boot-starter-jdbc")
+    runtimeOnly("com.h2database:h2")
+    runtimeOnly("org.postgresql:postgresql")
     
     // Utilities
     compileOnly("org.projectlombok:lombok")
@@ -42,6 +77,10 @@ dependencies {
     // Development
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     
+    // Benchmarks
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+
     // Testing
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
@@ -50,3 +89,54 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Runs every benchmark with the GC profiler and writes JSON results that jmhCompare can diff
+// against the committed baseline. Extra JMH options: ./gradlew jmh -PjmhArgs="-f 1 -wi 2 ParsingBenchmark"
+val jmhResults = layout.buildDirectory.file("reports/jmh/results.json")
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH microbenchmarks"
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    val extraArgs = providers.gradleProperty("jmhArgs").map { it.split(" ").filter(String::isNotBlank) }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf("-prof", "gc", "-rf", "json", "-rff", jmhResults.get().asFile.absolutePath) + extraArgs.getOrElse(emptyList())
+    })
+    doFirst { jmhResults.get().asFile.parentFile.mkdirs() }
+}
+
+tasks.register<JavaExec>("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the last JMH run against src/jmh/baseline.json"
+    classpath = jmh.runtimeClasspath
+    mainClass = "com.tripmind.ai.benchmark.BaselineComparison"
+    args(file("src/jmh/baseline.json").absolutePath, jmhResults.get().asFile.absolutePath)
+}
+
+// ./gradlew simulator -PsimArgs="--port=9090 --latency=lognormal:8s,0.5 --error-rate=0.02"
+tasks.register<JavaExec>("simulator") {
+    group = "load test"
+    description = "Starts the local OpenRouter simulator"
+    classpath = loadtest.runtimeClasspath
+    mainClass = "com.tripmind.ai.loadtest.OpenRouterSimulator"
+    args(providers.gradleProperty("simArgs").map { it.split(" ").filter(String::isNotBlank) }.getOrElse(emptyList()))
+}
+
+// ./gradlew loadtest -PloadArgs="--rate=20 --duration=60s --keys=200"
+tasks.register<JavaExec>("loadtest") {
+    group = "load test"
+    description = "Drives /api/generate-itinerary at a fixed arrival rate and reports latency percentiles"
+    classpath = loadtest.runtimeClasspath
+    mainClass = "com.tripmind.ai.loadtest.LoadGenerator"
+    args(providers.gradleProperty("loadArgs").map { it.split(" ").filter(String::isNotBlank) }.getOrElse(emptyList()))
+}
+
+// ./gradlew structuredCompare -PcompareArgs="--base-url=https://openrouter.ai/api/v1/ --trips=10 --days=3,7"
+tasks.register<JavaExec>("structuredCompare") {
+    group = "load test"
+    description = "Compares output tokens and latency of the schema-in-prompt and response_format modes"
+    classpath = loadtest.runtimeClasspath
+    mainClass = "com.tripmind.ai.loadtest.StructuredOutputComparison"
+    args(providers.gradleProperty("compareArgs").map { it.split(" ").filter(String::isNotBlank) }.getOrElse(emptyList()))
+}
@@ -0,0 +1,80 @@
+package com.tripmind.ai.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara dos ficheros de resultados JMH (-rf json) y muestra la variación de tiempo y de
+ * memoria asignada por operación de cada benchmark. Uso: BaselineComparison baseline.json results.json
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOC_RATE = "gc.alloc.rate.norm";
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json>");
+            System.exit(1);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> current = index(objectMapper.readTree(new File(args[1])));
+
+        System.out.printf("%-60s %12s %12s %8s %12s %12s %8s%n",
+            "Benchmark", "base", "current", "change", "base B/op", "cur B/op", "change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode result = entry.getValue();
+            JsonNode reference = baseline.get(entry.getKey());
+            double score = result.path("primaryMetric").path("score").asDouble();
+            double allocated = result.path("secondaryMetrics").path(ALLOC_RATE).path("score").asDouble(Double.NaN);
+            String unit = result.path("primaryMetric").path("scoreUnit").asText();
+
+            if (reference == null) {
+                System.out.printf("%-60s %12s %12.3f %8s %12s %12.0f %8s  (%s, new)%n",
+                    entry.getKey(), "-", score, "-", "-", allocated, "-", unit);
+                continue;
+            }
+
+            double referenceScore = reference.path("primaryMetric").path("score").asDouble();
+            double referenceAllocated = reference.path("secondaryMetrics").path(ALLOC_RATE).path("score").asDouble(Double.NaN);
+            System.out.printf("%-60s %12.3f %12.3f %8s %12.0f %12.0f %8s  (%s)%n",
+                entry.getKey(), referenceScore, score, change(referenceScore, score),
+                referenceAllocated, allocated, change(referenceAllocated, allocated), unit);
+        }
+    }
+
+    /**
+     * Indexa los resultados por nombre del benchmark y sus parámetros
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                .replace("com.tripmind.ai.benchmark.", ""));
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static String change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return "-";
+        }
+        return String.format("%+.1f%%", (after - before) / before * 100);
+    }
+}
@@ -0,0 +1,53 @@
+package com.tripmind.ai.benchmark;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Datos compartidos por los benchmarks: solicitudes de viaje de distinta duración y respuestas
+ * de OpenRouter grabadas (fixtures/completion-{3,7,21}d.json)
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Solicitud de viaje a París con la duración indicada
+     * @param days Duración del viaje en días
+     * @return Solicitud equivalente a la que envía el frontend
+     */
+    static ItineraryRequest request(int days) {
+        LocalDate start = LocalDate.of(2026, 5, 4);
+        ItineraryRequest request = new ItineraryRequest();
+        request.setDestination("Paris");
+        request.setStartDate(start.toString());
+        request.setEndDate(start.plusDays(days - 1L).toString());
+        request.setTravelers(2);
+        request.setBudget("moderate");
+        request.setInterests(List.of("Culture", "Food", "Nightlife"));
+        return request;
+    }
+
+    /**
+     * Respuesta completa de /chat/completions grabada para un viaje de la duración indicada
+     * @param days 3, 7 o 21
+     * @return Cuerpo HTTP tal como lo devuelve OpenRouter
+     */
+    static byte[] completion(int days) {
+        String name = "/fixtures/completion-" + days + "d.json";
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
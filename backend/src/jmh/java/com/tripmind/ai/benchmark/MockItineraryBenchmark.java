@@ -0,0 +1,37 @@
+package com.tripmind.ai.benchmark;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.ItineraryResponse;
+import com.tripmind.ai.service.ItineraryService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del itinerario mock que se sirve cuando la IA falla o no está disponible
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MockItineraryBenchmark {
+
+    @Param({"3", "7", "21"})
+    public int days;
+
+    private ItineraryService itineraryService;
+    private ItineraryRequest request;
+
+    @Setup
+    public void setUp() {
+        itineraryService = new ItineraryService();
+        request = Fixtures.request(days);
+    }
+
+    @Benchmark
+    public ItineraryResponse generateMockItinerary() {
+        return itineraryService.generateMockItinerary(request);
+    }
+}
@@ -0,0 +1,37 @@
+package com.tripmind.ai.benchmark;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.prompt.ItineraryPrompt;
+import com.tripmind.ai.prompt.ItineraryPromptBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de construir el prompt completo de un viaje (prefijo estático + datos de la solicitud)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptBuildingBenchmark {
+
+    @Param({"3", "7", "21"})
+    public int days;
+
+    private ItineraryPromptBuilder promptBuilder;
+    private ItineraryRequest request;
+
+    @Setup
+    public void setUp() {
+        promptBuilder = new ItineraryPromptBuilder(1500, 650, 4000, 8000, false);
+        request = Fixtures.request(days);
+    }
+
+    @Benchmark
+    public ItineraryPrompt buildPrompt() {
+        return promptBuilder.build(request, 1, days, days);
+    }
+}
@@ -0,0 +1,43 @@
+package com.tripmind.ai.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.service.ItineraryJsonReader;
+import com.tripmind.ai.service.ModelCompletion;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de leer una respuesta grabada de OpenRouter: sobre JSON, extracción del contenido
+ * y conversión del itinerario a DTOs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    @Param({"3", "7", "21"})
+    public int days;
+
+    private ItineraryJsonReader jsonReader;
+    private ItineraryRequest request;
+    private byte[] completion;
+
+    @Setup
+    public void setUp() {
+        jsonReader = new ItineraryJsonReader(new ObjectMapper());
+        request = Fixtures.request(days);
+        completion = Fixtures.completion(days);
+    }
+
+    @Benchmark
+    public ModelCompletion readCompletion() throws IOException {
+        return jsonReader.readCompletion(new ByteArrayInputStream(completion), request);
+    }
+}
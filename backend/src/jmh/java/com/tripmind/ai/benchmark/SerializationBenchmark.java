@@ -0,0 +1,41 @@
+package com.tripmind.ai.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.dto.ItineraryResponse;
+import com.tripmind.ai.service.ItineraryJsonReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de serializar con Jackson el itinerario que devuelve la API (respuestas grandes de 21 días incluidas)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"3", "7", "21"})
+    public int days;
+
+    private ObjectMapper objectMapper;
+    private ItineraryResponse itinerary;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        itinerary = new ItineraryJsonReader(objectMapper)
+            .readCompletion(new ByteArrayInputStream(Fixtures.completion(days)), Fixtures.request(days))
+            .itinerary();
+    }
+
+    @Benchmark
+    public byte[] writeItinerary() throws IOException {
+        return objectMapper.writeValueAsBytes(itinerary);
+    }
+}
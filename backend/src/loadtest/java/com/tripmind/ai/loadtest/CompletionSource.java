@@ -0,0 +1,217 @@
+package com.tripmind.ai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Origen de las respuestas del simulador:
+ * <ul>
+ *   <li>synth: sintetiza la respuesta recortando o repitiendo los días de las respuestas grabadas</li>
+ *   <li>replay: sirve respuestas grabadas por petición (mismo modelo y prompt) y sintetiza las que faltan</li>
+ *   <li>record: reenvía la petición al proveedor real y guarda su respuesta para reproducirla después</li>
+ * </ul>
+ */
+final class CompletionSource {
+
+    private static final Pattern DURATION = Pattern.compile("\\((\\d+) days\\)");
+    private static final Pattern RANGE = Pattern.compile("Only include days (\\d+) to (\\d+)");
+    private static final int[] FIXTURE_DAYS = {3, 7, 21};
+    private static final List<String> REQUEST_FIELDS =
+        List.of("destination", "startDate", "endDate", "travelers", "budget", "interests");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String mode;
+    private final Path recordings;
+    private final URI upstream;
+    private final String apiKey;
+    private final HttpClient httpClient;
+    private final Map<Integer, ObjectNode> fixtures = new TreeMap<>();
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong replayMisses = new AtomicLong();
+
+    CompletionSource(String mode, Path recordings, URI upstream, String apiKey) throws IOException {
+        this.mode = mode;
+        this.recordings = recordings;
+        this.upstream = upstream;
+        this.apiKey = apiKey;
+        this.httpClient = "record".equals(mode)
+            ? HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build()
+            : null;
+
+        if (!"synth".equals(mode)) {
+            Files.createDirectories(recordings);
+        }
+        for (int days : FIXTURE_DAYS) {
+            fixtures.put(days, loadFixture(days));
+        }
+    }
+
+    /**
+     * Devuelve el sobre completo de /chat/completions (sin streaming) para la petición
+     * @param request Cuerpo JSON recibido por el simulador
+     * @return Respuesta con choices[0].message.content y usage
+     */
+    ObjectNode completion(JsonNode request) throws IOException, InterruptedException {
+        String prompt = prompt(request);
+        Path recording = recordings == null ? null : recordings.resolve(key(request.path("model").asText(), prompt) + ".json");
+
+        if ("record".equals(mode)) {
+            ObjectNode recorded = forward(request);
+            Files.writeString(recording, objectMapper.writeValueAsString(recorded));
+            return recorded;
+        }
+        if ("replay".equals(mode)) {
+            if (Files.exists(recording)) {
+                replayed.incrementAndGet();
+                return (ObjectNode) objectMapper.readTree(recording.toFile());
+            }
+            replayMisses.incrementAndGet();
+        }
+        return synthesize(prompt, request);
+    }
+
+    String stats() {
+        return "mode=" + mode + ", replayed=" + replayed.get() + ", replayMisses=" + replayMisses.get();
+    }
+
+    /**
+     * Adapta la respuesta grabada más cercana al número de días que pide el prompt (un viaje
+     * completo o un rango de días cuando el backend divide el viaje en bloques). Con response_format
+     * el contenido es el JSON pelado, sin markdown ni los datos de la solicitud; el razonamiento
+     * se cuenta siempre en completion_tokens, aunque se oculte con reasoning.exclude
+     */
+    private ObjectNode synthesize(String prompt, JsonNode request) throws IOException {
+        int firstDay = 1;
+        int days = 3;
+        Matcher range = RANGE.matcher(prompt);
+        Matcher duration = DURATION.matcher(prompt);
+        if (range.find()) {
+            firstDay = Integer.parseInt(range.group(1));
+            days = Integer.parseInt(range.group(2)) - firstDay + 1;
+        } else if (duration.find()) {
+            days = Integer.parseInt(duration.group(1));
+        }
+
+        ObjectNode envelope = fixtureFor(days).deepCopy();
+        ObjectNode message = (ObjectNode) envelope.path("choices").path(0).path("message");
+        String content = message.path("content").asText();
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        ObjectNode itinerary = (ObjectNode) objectMapper.readTree(content.substring(start, end + 1));
+
+        ArrayNode recordedDays = (ArrayNode) itinerary.path("days");
+        ArrayNode selectedDays = objectMapper.createArrayNode();
+        for (int i = 0; i < days; i++) {
+            ObjectNode day = recordedDays.get(i % recordedDays.size()).deepCopy();
+            day.put("dayNumber", firstDay + i);
+            selectedDays.add(day);
+        }
+        itinerary.set("days", selectedDays);
+
+        String synthesized;
+        if (request.path("response_format").path("type").asText().equals("json_schema")) {
+            itinerary.remove(REQUEST_FIELDS);
+            synthesized = objectMapper.writeValueAsString(itinerary);
+        } else {
+            synthesized = "```json\n" + objectMapper.writeValueAsString(itinerary) + "\n```";
+        }
+        message.put("content", synthesized);
+        int reasoningTokens = message.path("reasoning").asText("").length() / 4;
+        if (request.path("reasoning").path("exclude").asBoolean(false)) {
+            message.remove("reasoning");
+        }
+        envelope.put("model", request.path("model").asText());
+        ObjectNode usage = (ObjectNode) envelope.path("usage");
+        int completionTokens = synthesized.length() / 4 + reasoningTokens;
+        usage.put("prompt_tokens", prompt.length() / 4);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", prompt.length() / 4 + completionTokens);
+        usage.putObject("completion_tokens_details").put("reasoning_tokens", reasoningTokens);
+        return envelope;
+    }
+
+    private ObjectNode fixtureFor(int days) {
+        for (Map.Entry<Integer, ObjectNode> fixture : fixtures.entrySet()) {
+            if (fixture.getKey() >= days) {
+                return fixture.getValue();
+            }
+        }
+        return fixtures.get(FIXTURE_DAYS[FIXTURE_DAYS.length - 1]);
+    }
+
+    /**
+     * Reenvía la petición al proveedor real sin streaming; el simulador la trocea después
+     * si el cliente pidió stream
+     */
+    private ObjectNode forward(JsonNode request) throws IOException, InterruptedException {
+        ObjectNode body = request.deepCopy();
+        body.remove("stream");
+        body.remove("stream_options");
+
+        HttpRequest upstreamRequest = HttpRequest.newBuilder(upstream.resolve("chat/completions"))
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofMinutes(3))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build();
+        HttpResponse<byte[]> response = httpClient.send(upstreamRequest, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Upstream returned " + response.statusCode() + ": "
+                + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return (ObjectNode) objectMapper.readTree(response.body());
+    }
+
+    private String prompt(JsonNode request) {
+        StringBuilder prompt = new StringBuilder();
+        for (JsonNode message : request.path("messages")) {
+            prompt.append(message.path("content").asText()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    private ObjectNode loadFixture(int days) throws IOException {
+        String name = "/fixtures/completion-" + days + "d.json";
+        try (InputStream in = CompletionSource.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture: " + name);
+            }
+            return (ObjectNode) objectMapper.readTree(in);
+        }
+    }
+
+    private static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
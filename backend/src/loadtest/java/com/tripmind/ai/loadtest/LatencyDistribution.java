@@ -0,0 +1,65 @@
+package com.tripmind.ai.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribución de latencias simuladas. Formatos admitidos:
+ * <ul>
+ *   <li>fixed:8s</li>
+ *   <li>uniform:2s-12s</li>
+ *   <li>lognormal:8s,0.5 (mediana y sigma, cola larga como la de los LLM)</li>
+ * </ul>
+ */
+final class LatencyDistribution {
+
+    private final String kind;
+    private final double first;
+    private final double second;
+
+    private LatencyDistribution(String kind, double first, double second) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+        }
+        String kind = spec.substring(0, colon);
+        String params = spec.substring(colon + 1);
+        return switch (kind) {
+            case "fixed" -> new LatencyDistribution(kind, millis(params), 0);
+            case "uniform" -> {
+                String[] bounds = params.split("-");
+                yield new LatencyDistribution(kind, millis(bounds[0]), millis(bounds[1]));
+            }
+            case "lognormal" -> {
+                String[] values = params.split(",");
+                yield new LatencyDistribution(kind, millis(values[0]), Double.parseDouble(values[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + kind);
+        };
+    }
+
+    Duration sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double millis = switch (kind) {
+            case "uniform" -> first + random.nextDouble() * (second - first);
+            case "lognormal" -> first * Math.exp(second * random.nextGaussian());
+            default -> first;
+        };
+        return Duration.ofMillis(Math.max(0, Math.round(millis)));
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + first + "ms" + (second > 0 ? ", " + second : "") + ")";
+    }
+
+    private static double millis(String value) {
+        return Args.parseDuration(value).toMillis();
+    }
+}
@@ -0,0 +1,173 @@
+package com.tripmind.ai.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de tasa fija (modelo abierto): lanza peticiones a un ritmo constante
+ * sin esperar a las anteriores, de modo que la latencia del servidor no reduce la carga.
+ * Al terminar muestra throughput, p50/p95/p99 y errores por código de estado.
+ * Todas las peticiones salen de la misma IP, así que el backend debe correr con el límite por
+ * cliente desactivado (RATE_LIMIT_ENABLED=false).
+ *
+ * <pre>
+ * ./gradlew loadtest -PloadArgs="--rate=20 --duration=60s --warmup=10s --keys=200 --days=3,7,14"
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final String[] DESTINATIONS = {
+        "Paris", "Tokyo", "Lisbon", "New York", "Mexico City", "Rome", "Barcelona", "Kyoto",
+        "Buenos Aires", "Cape Town", "Istanbul", "Bangkok", "Reykjavik", "Marrakech", "Sydney"
+    };
+    private static final String[] INTERESTS = {"Culture", "Food", "Adventure", "Nightlife", "Nature", "Shopping"};
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+
+    private final URI target;
+    private final Duration timeout;
+    private final List<String> bodies;
+
+    private final List<Long> latencies = new ArrayList<>();
+    private final Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+
+    LoadGenerator(URI target, Duration timeout, List<String> bodies) {
+        this.target = target;
+        this.timeout = timeout;
+        this.bodies = bodies;
+    }
+
+    public static void main(String[] arguments) throws InterruptedException {
+        Args args = new Args(arguments);
+        URI target = URI.create(args.string("target", "http://localhost:8080/api/generate-itinerary"));
+        double rate = args.decimal("rate", 5);
+        Duration duration = args.duration("duration", "60s");
+        Duration warmup = args.duration("warmup", "0s");
+        int[] days = Arrays.stream(args.string("days", "3,7").split(",")).mapToInt(Integer::parseInt).toArray();
+
+        LoadGenerator generator = new LoadGenerator(target, args.duration("timeout", "180s"),
+            requestBodies(args.integer("keys", 100), days));
+
+        if (!warmup.isZero()) {
+            System.out.printf("Warming up for %ds at %.1f req/s...%n", warmup.toSeconds(), rate);
+            generator.run(rate, warmup, false);
+        }
+        System.out.printf("Sending %.1f req/s to %s for %ds...%n", rate, target, duration.toSeconds());
+        long start = System.nanoTime();
+        int sent = generator.run(rate, duration, true);
+        generator.report(sent, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Lanza peticiones a intervalos fijos y espera a que terminen todas
+     * @return Número de peticiones enviadas
+     */
+    private int run(double rate, Duration duration, boolean measure) throws InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+
+        int sent = 0;
+        for (long next = start; next < end; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String body = bodies.get(ThreadLocalRandom.current().nextInt(bodies.size()));
+            inFlight.add(send(body, measure));
+            sent++;
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        return sent;
+    }
+
+    private CompletableFuture<Void> send(String body, boolean measure) {
+        HttpRequest request = HttpRequest.newBuilder(target)
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                if (!measure) {
+                    return null;
+                }
+                long elapsed = System.nanoTime() - start;
+                String outcome = error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode());
+                outcomes.computeIfAbsent(outcome, key -> new AtomicInteger()).incrementAndGet();
+                if (error == null && response.statusCode() < 400) {
+                    synchronized (latencies) {
+                        latencies.add(elapsed);
+                    }
+                }
+                return null;
+            });
+    }
+
+    private void report(int sent, Duration elapsed) {
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        double seconds = elapsed.toNanos() / 1e9;
+
+        System.out.println();
+        System.out.printf("Requests sent:   %d in %.1fs%n", sent, seconds);
+        System.out.printf("Successful:      %d (%.1f req/s)%n", sorted.length, sorted.length / seconds);
+        System.out.printf("Outcomes:        %s%n", new TreeMap<>(outcomes));
+        if (sorted.length > 0) {
+            System.out.printf("Latency p50:     %8.1f ms%n", percentile(sorted, 0.50));
+            System.out.printf("Latency p95:     %8.1f ms%n", percentile(sorted, 0.95));
+            System.out.printf("Latency p99:     %8.1f ms%n", percentile(sorted, 0.99));
+            System.out.printf("Latency max:     %8.1f ms%n", sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Genera un conjunto fijo de solicitudes distintas: con pocas claves casi todo sale de la
+     * caché del backend, con muchas casi todo llega al modelo
+     */
+    private static List<String> requestBodies(int keys, int[] days) {
+        List<String> bodies = new ArrayList<>(keys);
+        LocalDate baseDate = LocalDate.now().plusMonths(1);
+        for (int i = 0; i < keys; i++) {
+            int tripDays = days[i % days.length];
+            // Each pass over the destinations uses a different group size, so every body is a distinct cache key
+            int travelers = 1 + i / DESTINATIONS.length;
+            LocalDate start = baseDate.plusDays(i % 30);
+            String interests = "\"" + INTERESTS[i % INTERESTS.length] + "\",\"" + INTERESTS[(i / 2 + 1) % INTERESTS.length] + "\"";
+            bodies.add(String.format(
+                "{\"destination\":\"%s\",\"startDate\":\"%s\",\"endDate\":\"%s\",\"travelers\":%d,"
+                    + "\"budget\":\"%s\",\"interests\":[%s]}",
+                DESTINATIONS[i % DESTINATIONS.length], start, start.plusDays(tripDays - 1L), travelers,
+                i % 3 == 0 ? "budget" : i % 3 == 1 ? "moderate" : "luxury", interests));
+        }
+        return bodies;
+    }
+}
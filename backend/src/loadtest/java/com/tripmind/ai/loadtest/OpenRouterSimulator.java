@@ -0,0 +1,241 @@
+package com.tripmind.ai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustituto local de la API de OpenRouter para pruebas de carga sin coste.
+ * Atiende POST /chat/completions (con y sin stream) y GET/HEAD /models.
+ *
+ * <pre>
+ * ./gradlew simulator -PsimArgs="--port=9090 --latency=lognormal:8s,0.5 --error-rate=0.02 --truncate-rate=0.05"
+ * ./gradlew simulator -PsimArgs="--mode=record --recordings=build/recordings --upstream=https://openrouter.ai/api/v1/"
+ * ./gradlew simulator -PsimArgs="--mode=replay --recordings=build/recordings"
+ * </pre>
+ *
+ * El backend se apunta al simulador con OPENROUTER_BASE_URL=http://localhost:9090
+ */
+public final class OpenRouterSimulator {
+
+    private static final int STREAM_CHUNK_CHARS = 48;
+    private static final int[] ERROR_STATUSES = {429, 500, 502, 503};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CompletionSource completions;
+    private final LatencyDistribution latency;
+    private final double ttfbFraction;
+    private final double errorRate;
+    private final double truncateRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong truncated = new AtomicLong();
+
+    OpenRouterSimulator(CompletionSource completions, LatencyDistribution latency, double ttfbFraction,
+                        double errorRate, double truncateRate) {
+        this.completions = completions;
+        this.latency = latency;
+        this.ttfbFraction = ttfbFraction;
+        this.errorRate = errorRate;
+        this.truncateRate = truncateRate;
+    }
+
+    public static void main(String[] arguments) throws IOException {
+        start(arguments);
+    }
+
+    /**
+     * Arranca el simulador con los mismos argumentos que la línea de comandos; con --port=0 escucha
+     * en un puerto libre (server.getAddress().getPort())
+     * @return Servidor en marcha, que se detiene con stop(0)
+     */
+    public static HttpServer start(String... arguments) throws IOException {
+        Args args = new Args(arguments);
+        String mode = args.string("mode", "synth");
+        CompletionSource completions = new CompletionSource(
+            mode,
+            Path.of(args.string("recordings", "build/recordings")),
+            URI.create(args.string("upstream", "https://openrouter.ai/api/v1/")),
+            System.getenv().getOrDefault("OPENROUTER_API_KEY", ""));
+        LatencyDistribution latency = LatencyDistribution.parse(args.string("latency", "lognormal:8s,0.5"));
+        OpenRouterSimulator simulator = new OpenRouterSimulator(
+            completions,
+            // Recording measures the real provider, so no extra latency is injected
+            "record".equals(mode) ? LatencyDistribution.parse("fixed:0s") : latency,
+            args.decimal("ttfb-fraction", 0.1),
+            args.decimal("error-rate", 0.0),
+            args.decimal("truncate-rate", 0.0));
+
+        int port = args.integer("port", 9090);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/chat/completions", simulator::handleCompletion);
+        server.createContext("/models", simulator::handleModels);
+        server.createContext("/stats", simulator::handleStats);
+        // Simulated latency is a sleep, so every request gets its own virtual thread
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        System.out.printf("OpenRouter simulator on http://localhost:%d (%s, latency=%s)%n",
+            server.getAddress().getPort(), completions.stats(), latency);
+        return server;
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", error("Method not allowed", 405));
+                return;
+            }
+            requests.incrementAndGet();
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            Duration total = latency.sample();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            if (random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                int status = ERROR_STATUSES[random.nextInt(ERROR_STATUSES.length)];
+                Thread.sleep(total.toMillis() / 4);
+                send(exchange, status, "application/json", error("Simulated upstream error", status));
+                return;
+            }
+
+            ObjectNode completion = completions.completion(request);
+            if (random.nextDouble() < truncateRate) {
+                truncate(completion, 0.5 + random.nextDouble() * 0.45);
+            }
+
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, completion, total, request.path("stream_options").path("include_usage").asBoolean(false));
+            } else {
+                Thread.sleep(total.toMillis());
+                send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(completion));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+            // A failure in the middle of a stream can only close the connection
+            if (exchange.getResponseCode() == -1) {
+                send(exchange, 502, "application/json", error(e.getMessage(), 502));
+            }
+        }
+    }
+
+    /**
+     * Emite el contenido como eventos SSE al estilo de OpenAI: el primer byte llega tras una
+     * fracción de la latencia (la fase de razonamiento) y el resto se reparte entre los fragmentos
+     */
+    private void stream(HttpExchange exchange, ObjectNode completion, Duration total, boolean includeUsage)
+            throws IOException, InterruptedException {
+        JsonNode choice = completion.path("choices").path(0);
+        String content = choice.path("message").path("content").asText();
+        int chunks = Math.max(1, (content.length() + STREAM_CHUNK_CHARS - 1) / STREAM_CHUNK_CHARS);
+        long firstByteMillis = (long) (total.toMillis() * ttfbFraction);
+        long nanosPerChunk = (total.toNanos() - firstByteMillis * 1_000_000) / chunks;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        Thread.sleep(firstByteMillis);
+        // OpenRouter sends keep-alive comments while the model is reasoning
+        out.write(": OPENROUTER PROCESSING\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        for (int i = 0; i < chunks; i++) {
+            String delta = content.substring(i * STREAM_CHUNK_CHARS, Math.min(content.length(), (i + 1) * STREAM_CHUNK_CHARS));
+            writeEvent(out, chunk(completion, Map.of("content", delta), null));
+            Thread.sleep(nanosPerChunk / 1_000_000, (int) (nanosPerChunk % 1_000_000));
+        }
+
+        ObjectNode last = chunk(completion, Map.of(), choice.path("finish_reason").asText("stop"));
+        if (includeUsage) {
+            last.set("usage", completion.path("usage"));
+        }
+        writeEvent(out, last);
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode chunk(ObjectNode completion, Map<String, String> delta, String finishReason) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", completion.path("id").asText());
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("model", completion.path("model").asText());
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode deltaNode = choice.putObject("delta");
+        delta.forEach(deltaNode::put);
+        if (finishReason == null) {
+            choice.putNull("finish_reason");
+        } else {
+            choice.put("finish_reason", finishReason);
+        }
+        return chunk;
+    }
+
+    private void writeEvent(OutputStream out, ObjectNode event) throws IOException {
+        out.write("data: ".getBytes(StandardCharsets.UTF_8));
+        out.write(objectMapper.writeValueAsBytes(event));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Corta el contenido como si el modelo hubiera agotado max_tokens
+     */
+    private void truncate(ObjectNode completion, double keep) {
+        truncated.incrementAndGet();
+        ObjectNode choice = (ObjectNode) completion.path("choices").path(0);
+        ObjectNode message = (ObjectNode) choice.path("message");
+        String content = message.path("content").asText();
+        message.put("content", content.substring(0, (int) (content.length() * keep)));
+        choice.put("finish_reason", "length");
+    }
+
+    private void handleModels(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = "{\"data\":[{\"id\":\"deepseek/deepseek-r1\"},{\"id\":\"deepseek/deepseek-chat\"}]}"
+                .getBytes(StandardCharsets.UTF_8);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                send(exchange, 200, "application/json", body);
+            }
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String stats = String.format("requests=%d, errors=%d, truncated=%d, %s%n",
+                requests.get(), errors.get(), truncated.get(), completions.stats());
+            send(exchange, 200, "text/plain", stats.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] error(String message, int code) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.putObject("error").put("message", message).put("code", code);
+        return objectMapper.writeValueAsBytes(error);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
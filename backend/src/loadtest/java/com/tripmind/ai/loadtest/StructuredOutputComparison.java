@@ -0,0 +1,200 @@
+package com.tripmind.ai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.prompt.ItineraryPrompt;
+import com.tripmind.ai.prompt.ItineraryPromptBuilder;
+import com.tripmind.ai.prompt.ItinerarySchema;
+import com.tripmind.ai.service.ItineraryJsonReader;
+import com.tripmind.ai.service.ModelCompletion;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compara el prompt con el esquema en el texto frente al modo de salida estructurada
+ * (response_format json_schema sin razonamiento en la respuesta): envía los mismos viajes en
+ * ambos modos, alternándolos, y muestra latencia, tokens de salida y respuestas que se parsean.
+ *
+ * <pre>
+ * ./gradlew structuredCompare -PcompareArgs="--base-url=https://openrouter.ai/api/v1/ --trips=10 --days=3,7"
+ * ./gradlew structuredCompare -PcompareArgs="--base-url=http://localhost:9090/"
+ * </pre>
+ *
+ * Contra OpenRouter usa OPENROUTER_API_KEY; contra el simulador solo valida la integración.
+ */
+public final class StructuredOutputComparison {
+
+    private static final String[] DESTINATIONS = {"Paris", "Tokyo", "Lisbon", "Mexico City", "Kyoto", "Cape Town"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ItineraryJsonReader jsonReader = new ItineraryJsonReader(objectMapper);
+    private final ItinerarySchema schema = new ItinerarySchema(objectMapper);
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    private final URI endpoint;
+    private final String apiKey;
+    private final String model;
+    private final Duration timeout;
+
+    StructuredOutputComparison(URI baseUrl, String apiKey, String model, Duration timeout) {
+        this.endpoint = baseUrl.resolve("chat/completions");
+        this.apiKey = apiKey;
+        this.model = model;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] arguments) throws IOException, InterruptedException {
+        Args args = new Args(arguments);
+        String baseUrl = args.string("base-url", "http://localhost:9090/");
+        StructuredOutputComparison comparison = new StructuredOutputComparison(
+            URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/"),
+            System.getenv().getOrDefault("OPENROUTER_API_KEY", ""),
+            args.string("model", "deepseek/deepseek-r1"),
+            args.duration("timeout", "180s"));
+        int[] days = Arrays.stream(args.string("days", "3,7").split(",")).mapToInt(Integer::parseInt).toArray();
+
+        Mode[] modes = {
+            new Mode("prompt-schema", new ItineraryPromptBuilder(1500, 650, 4000, 8000, false), false),
+            new Mode("response_format", new ItineraryPromptBuilder(1500, 650, 4000, 8000, true), true)
+        };
+
+        int trips = args.integer("trips", 5);
+        System.out.printf("Sending %d trips in both modes to %s (%s)...%n", trips, comparison.endpoint, comparison.model);
+        for (int i = 0; i < trips; i++) {
+            ItineraryRequest request = request(i, days[i % days.length]);
+            // Alternating the order keeps provider-side drift from favouring one mode
+            for (int j = 0; j < modes.length; j++) {
+                Mode mode = modes[(i + j) % modes.length];
+                mode.samples.add(comparison.call(mode, request));
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-16s %6s %6s %10s %10s %10s %12s %12s %12s%n",
+            "mode", "calls", "parsed", "p50 ms", "p95 ms", "prompt", "completion", "reasoning", "content ch");
+        for (Mode mode : modes) {
+            mode.report();
+        }
+    }
+
+    private Sample call(Mode mode, ItineraryRequest request) throws IOException, InterruptedException {
+        int duration = (int) (LocalDate.parse(request.getEndDate()).toEpochDay()
+            - LocalDate.parse(request.getStartDate()).toEpochDay()) + 1;
+        ItineraryPrompt prompt = mode.promptBuilder.build(request, 1, duration, duration);
+
+        // Same body as OpenRouterService sends in each mode
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(Map.of("role", "user", "content", prompt.content())));
+        body.put("max_tokens", prompt.maxTokens());
+        body.put("temperature", 0.7);
+        if (mode.structured) {
+            body.put("response_format", schema.responseFormat(prompt.includesExtras()));
+            body.put("provider", Map.of("require_parameters", true));
+            body.put("reasoning", Map.of("exclude", true));
+        }
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(endpoint)
+            .timeout(timeout)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build();
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        long elapsed = System.nanoTime() - start;
+        if (response.statusCode() != 200) {
+            System.out.printf("  %s %s: HTTP %d%n", mode.name, request.getDestination(), response.statusCode());
+            return new Sample(elapsed, false, null);
+        }
+
+        JsonNode envelope = objectMapper.readTree(response.body());
+        boolean parsed;
+        try {
+            ModelCompletion completion = jsonReader.readCompletion(
+                new ByteArrayInputStream(response.body()), request, mode.structured);
+            parsed = !completion.truncated() && completion.itinerary().getDays().size() == duration;
+        } catch (IOException e) {
+            parsed = false;
+        }
+        return new Sample(elapsed, parsed, envelope);
+    }
+
+    private static ItineraryRequest request(int index, int days) {
+        LocalDate start = LocalDate.now().plusMonths(1).plusDays(index);
+        ItineraryRequest request = new ItineraryRequest();
+        request.setDestination(DESTINATIONS[index % DESTINATIONS.length]);
+        request.setStartDate(start.toString());
+        request.setEndDate(start.plusDays(days - 1L).toString());
+        request.setTravelers(2);
+        request.setBudget("moderate");
+        request.setInterests(List.of("Culture", "Food"));
+        return request;
+    }
+
+    private record Sample(long nanos, boolean parsed, JsonNode envelope) {
+
+        int usage(String field) {
+            return envelope == null ? 0 : envelope.path("usage").path(field).asInt();
+        }
+
+        int reasoningTokens() {
+            return envelope == null ? 0
+                : envelope.path("usage").path("completion_tokens_details").path("reasoning_tokens").asInt();
+        }
+
+        int contentChars() {
+            return envelope == null ? 0
+                : envelope.path("choices").path(0).path("message").path("content").asText("").length();
+        }
+    }
+
+    private static final class Mode {
+
+        private final String name;
+        private final ItineraryPromptBuilder promptBuilder;
+        private final boolean structured;
+        private final List<Sample> samples = new ArrayList<>();
+
+        Mode(String name, ItineraryPromptBuilder promptBuilder, boolean structured) {
+            this.name = name;
+            this.promptBuilder = promptBuilder;
+            this.structured = structured;
+        }
+
+        void report() {
+            long[] sorted = samples.stream().mapToLong(Sample::nanos).sorted().toArray();
+            System.out.printf("%-16s %6d %6d %10.0f %10.0f %10.0f %12.0f %12.0f %12.0f%n",
+                name,
+                samples.size(),
+                samples.stream().filter(Sample::parsed).count(),
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.95),
+                samples.stream().mapToInt(sample -> sample.usage("prompt_tokens")).average().orElse(0),
+                samples.stream().mapToInt(sample -> sample.usage("completion_tokens")).average().orElse(0),
+                samples.stream().mapToInt(Sample::reasoningTokens).average().orElse(0),
+                samples.stream().mapToInt(Sample::contentChars).average().orElse(0));
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.tripmind.ai;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Aplicación principal de TripMind AI
  * Planificador de viajes inteligente con integración de IA
  */
 @SpringBootApplication
+@EnableScheduling
 public class TripmindApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,274 @@
+package com.tripmind.ai.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.DayItinerary;
+import com.tripmind.ai.dto.ItineraryResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Caché de itinerarios generados por IA, situada delante de OpenRouterService.
+ * Las solicitudes equivalentes (misma clave normalizada) reutilizan el resultado y
+ * los fallos concurrentes de la misma clave comparten una única llamada al modelo.
+ */
+@Component
+public class ItineraryCache {
+
+    private final TtlLruCache<ItineraryCacheKey, ItineraryResponse> entries;
+    private final TtlLruCache<RenderKey, SerializedItinerary> serialized;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight<ItineraryCacheKey, ItineraryResponse> singleFlight = new SingleFlight<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter serializedHits;
+    private final Counter serializedRenders;
+
+    public ItineraryCache(@Value("${app.cache.itinerary.max-size:500}") int maxSize,
+                          @Value("${app.cache.itinerary.ttl:6h}") Duration ttl,
+                          @Value("${app.cache.itinerary.serialized-max-size:2000}") int serializedMaxSize,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.entries = new TtlLruCache<>(maxSize, ttl);
+        this.serialized = new TtlLruCache<>(serializedMaxSize, ttl);
+        this.objectMapper = objectMapper;
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+        this.coalesced = cacheCounter(meterRegistry, "coalesced");
+        this.serializedHits = serializedCounter(meterRegistry, "hit");
+        this.serializedRenders = serializedCounter(meterRegistry, "render");
+        Gauge.builder("tripmind.itinerary.cache.size", entries, TtlLruCache::size)
+            .description("Itinerarios almacenados en caché")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.itinerary.cache.in-flight", singleFlight, SingleFlight::inFlightCount)
+            .description("Generaciones en curso compartidas por la caché")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Obtiene el itinerario desde caché o lo genera una sola vez para todas las solicitudes equivalentes
+     * @param request Datos del viaje
+     * @param generator Generación real del itinerario (llamada al modelo)
+     * @return Itinerario adaptado a las fechas y datos de la solicitud
+     */
+    public ItineraryResponse get(ItineraryRequest request, Supplier<ItineraryResponse> generator) {
+        ItineraryCacheKey key = ItineraryCacheKey.from(request);
+        ItineraryResponse cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            return rebase(cached, request);
+        }
+
+        CompletableFuture<ItineraryResponse> call = singleFlight.execute(key, () -> {
+            misses.increment();
+            ItineraryResponse generated = generator.get();
+            entries.put(key, generated);
+            return CompletableFuture.completedFuture(generated);
+        }, coalesced::increment);
+
+        return rebase(join(call), request);
+    }
+
+    /**
+     * Versión no bloqueante de {@link #get}: los solicitantes que se unen a una generación en curso
+     * no la cancelan al desconectarse, de modo que el resultado se almacena igualmente
+     * @param request Datos del viaje
+     * @param generator Generación real del itinerario (llamada al modelo)
+     * @return Itinerario adaptado a las fechas y datos de la solicitud
+     */
+    public Mono<ItineraryResponse> getAsync(ItineraryRequest request, Supplier<Mono<ItineraryResponse>> generator) {
+        return Mono.defer(() -> {
+            ItineraryCacheKey key = ItineraryCacheKey.from(request);
+            ItineraryResponse cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(rebase(cached, request));
+            }
+
+            CompletableFuture<ItineraryResponse> call = singleFlight.execute(key, () -> {
+                misses.increment();
+                return generator.get()
+                    .doOnNext(generated -> entries.put(key, generated))
+                    .toFuture();
+            }, coalesced::increment);
+
+            return Mono.fromFuture(call, true).map(generated -> rebase(generated, request));
+        });
+    }
+
+    /**
+     * Consulta la caché sin generar en caso de fallo
+     * @param request Datos del viaje
+     * @return Itinerario adaptado a la solicitud o null si no está en caché
+     */
+    public ItineraryResponse peek(ItineraryRequest request) {
+        ItineraryResponse cached = entries.get(ItineraryCacheKey.from(request));
+        if (cached == null) {
+            return null;
+        }
+        hits.increment();
+        return rebase(cached, request);
+    }
+
+    /**
+     * Consulta la caché y devuelve el itinerario ya serializado para esta solicitud exacta.
+     * Los bytes se generan en el primer acierto de cada combinación de destino, fechas y
+     * viajeros, y se descartan cuando la entrada de la que salieron expira o se reemplaza.
+     * @param request Datos del viaje
+     * @return Itinerario serializado o null si no está en caché
+     */
+    public SerializedItinerary peekSerialized(ItineraryRequest request) {
+        ItineraryResponse cached = entries.get(ItineraryCacheKey.from(request));
+        if (cached == null) {
+            return null;
+        }
+        hits.increment();
+
+        RenderKey renderKey = RenderKey.from(request);
+        SerializedItinerary rendered = serialized.get(renderKey);
+        if (rendered != null && rendered.getSource() == cached) {
+            serializedHits.increment();
+            return rendered;
+        }
+
+        serializedRenders.increment();
+        try {
+            rendered = new SerializedItinerary(cached, objectMapper.writeValueAsBytes(rebase(cached, request)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing cached itinerary: " + e.getMessage(), e);
+        }
+        serialized.put(renderKey, rendered);
+        return rendered;
+    }
+
+    /**
+     * Indica si hay un itinerario en caché para la solicitud, sin contarlo como acierto
+     * @param request Datos del viaje
+     */
+    public boolean contains(ItineraryRequest request) {
+        return entries.get(ItineraryCacheKey.from(request)) != null;
+    }
+
+    /**
+     * Almacena un itinerario generado fuera de la caché (por ejemplo, en streaming)
+     * @param request Datos del viaje
+     * @param itinerary Itinerario generado
+     */
+    public void put(ItineraryRequest request, ItineraryResponse itinerary) {
+        entries.put(ItineraryCacheKey.from(request), itinerary);
+    }
+
+    /**
+     * Renueva la entrada de la solicitud con otro tiempo de vida, por ejemplo para que lo
+     * pre-generado en horas valle siga en caché durante las horas punta
+     * @param request Datos del viaje
+     * @param ttl Tiempo de vida desde ahora
+     * @return true si había una entrada vigente que renovar
+     */
+    public boolean retain(ItineraryRequest request, Duration ttl) {
+        return entries.renew(ItineraryCacheKey.from(request), ttl);
+    }
+
+    /**
+     * Elimina todas las entradas de la caché
+     */
+    public void clear() {
+        entries.clear();
+        serialized.clear();
+    }
+
+    private ItineraryResponse join(CompletableFuture<ItineraryResponse> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adapta un itinerario cacheado a la solicitud actual: destino, fechas, viajeros e intereses
+     * tal como los envió el usuario, desplazando las fechas de cada día.
+     */
+    private ItineraryResponse rebase(ItineraryResponse cached, ItineraryRequest request) {
+        LocalDate startDate = LocalDate.parse(request.getStartDate());
+        List<DayItinerary> days = new ArrayList<>(cached.getDays().size());
+        for (int i = 0; i < cached.getDays().size(); i++) {
+            DayItinerary day = cached.getDays().get(i);
+            days.add(new DayItinerary(
+                day.getDayNumber(),
+                startDate.plusDays(i).toString(),
+                day.getDayTitle(),
+                day.getMorningActivities(),
+                day.getAfternoonActivities(),
+                day.getEveningActivities(),
+                day.getRestaurants(),
+                day.getDaySummary(),
+                day.getEstimatedCost()
+            ));
+        }
+
+        return new ItineraryResponse(
+            request.getDestination(),
+            request.getStartDate(),
+            request.getEndDate(),
+            request.getTravelers(),
+            request.getBudget(),
+            request.getInterests(),
+            days,
+            cached.getAccommodation(),
+            cached.getTotalEstimatedCost(),
+            cached.getCurrency(),
+            cached.getTravelTips()
+        );
+    }
+
+    private static Counter serializedCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tripmind.itinerary.cache.serialized")
+            .description("Aciertos de caché servidos con bytes ya serializados o serializados en ese momento")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tripmind.itinerary.cache.requests")
+            .description("Consultas a la caché de itinerarios")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Campos de la solicitud que determinan el JSON de un acierto (además de la entrada cacheada)
+     */
+    private record RenderKey(String destination, String startDate, String endDate, int travelers,
+                             String budget, List<String> interests) {
+
+        static RenderKey from(ItineraryRequest request) {
+            return new RenderKey(
+                request.getDestination(),
+                request.getStartDate(),
+                request.getEndDate(),
+                request.getTravelers(),
+                request.getBudget(),
+                request.getInterests() == null ? null : new ArrayList<>(request.getInterests())
+            );
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tripmind.ai.cache;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Clave normalizada de un itinerario: destino en minúsculas, duración en lugar de
+ * fechas absolutas e intereses ordenados, para que solicitudes equivalentes compartan entrada.
+ */
+public record ItineraryCacheKey(String destination, int duration, int travelers,
+                                String budget, List<String> interests) {
+
+    public static ItineraryCacheKey from(ItineraryRequest request) {
+        return new ItineraryCacheKey(
+            normalize(request.getDestination()),
+            calculateDuration(request.getStartDate(), request.getEndDate()),
+            request.getTravelers(),
+            normalize(request.getBudget()),
+            normalizeInterests(request.getInterests())
+        );
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> normalizeInterests(List<String> interests) {
+        if (interests == null || interests.isEmpty()) {
+            return List.of();
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String interest : interests) {
+            String normalized = normalize(interest);
+            if (!normalized.isEmpty()) {
+                sorted.add(normalized);
+            }
+        }
+        return List.copyOf(sorted);
+    }
+
+    private static int calculateDuration(String startDate, String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return (int) ChronoUnit.DAYS.between(start, end) + 1;
+    }
+}
@@ -0,0 +1,65 @@
+package com.tripmind.ai.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.dto.ItineraryResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Almacén de itinerarios generados direccionado por contenido: cada respuesta se guarda bajo
+ * el hash de su JSON para que el frontend pueda volver a pedirla sin generarla de nuevo
+ */
+@Component
+public class ItineraryStore {
+
+    private final TtlLruCache<String, SerializedItinerary> itineraries;
+    private final ObjectMapper objectMapper;
+
+    public ItineraryStore(@Value("${app.itineraries.store.max-size:5000}") int maxSize,
+                          @Value("${app.itineraries.store.ttl:24h}") Duration ttl,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.itineraries = new TtlLruCache<>(maxSize, ttl);
+        this.objectMapper = objectMapper;
+        Gauge.builder("tripmind.itineraries.store.size", itineraries, TtlLruCache::size)
+            .description("Itinerarios disponibles por ID de contenido")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Serializa y guarda un itinerario
+     * @param itinerary Itinerario generado
+     * @return Itinerario serializado, con su ID de contenido
+     */
+    public SerializedItinerary put(ItineraryResponse itinerary) {
+        try {
+            return put(new SerializedItinerary(itinerary, objectMapper.writeValueAsBytes(itinerary)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing itinerary: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Guarda un itinerario ya serializado (por ejemplo, un acierto de la caché)
+     * @param itinerary Itinerario serializado
+     * @return El mismo itinerario
+     */
+    public SerializedItinerary put(SerializedItinerary itinerary) {
+        itineraries.put(itinerary.getId(), itinerary);
+        return itinerary;
+    }
+
+    /**
+     * Obtiene un itinerario por su ID de contenido
+     * @param id Hash del contenido
+     * @return Itinerario serializado o null si no existe o expiró
+     */
+    public SerializedItinerary get(String id) {
+        return itineraries.get(id);
+    }
+}
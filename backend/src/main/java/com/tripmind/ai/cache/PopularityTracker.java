@@ -0,0 +1,172 @@
+package com.tripmind.ai.cache;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Frecuencia de solicitudes por destino, duración y presupuesto normalizados, con decaimiento
+ * exponencial para seguir la demanda reciente. Guarda la última solicitud de cada combinación
+ * para poder pre-generarla con los mismos viajeros e intereses.
+ * <p>
+ * Usa decaimiento hacia delante: cada solicitud suma un peso que crece con el tiempo en lugar de
+ * reducir los anteriores, así que el orden entre combinaciones no cambia al pasar el tiempo y se
+ * mantiene en un conjunto ordenado. Con el límite alcanzado, una combinación nueva sustituye a la
+ * menos pedida y hereda su peso como error (Space-Saving); el ranking usa el peso menos ese error.
+ */
+@Component
+public class PopularityTracker {
+
+    // Below this many decayed requests an entry no longer counts
+    private static final double MIN_SCORE = 0.05;
+    // Weights are rebased before 2^x gets anywhere near the range of a double
+    private static final double MAX_EXPONENT = 64;
+
+    private final Map<PopularityKey, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byWeight = new TreeSet<>(
+        Comparator.comparingDouble((Entry entry) -> entry.weight).thenComparingLong(entry -> entry.id));
+    private final int maxTracked;
+    private final double halfLifeNanos;
+    private long landmark = System.nanoTime();
+    private long nextId;
+
+    public PopularityTracker(@Value("${app.warmer.max-tracked:10000}") int maxTracked,
+                             @Value("${app.warmer.half-life:24h}") Duration halfLife,
+                             MeterRegistry meterRegistry) {
+        this.maxTracked = maxTracked;
+        this.halfLifeNanos = halfLife.toNanos();
+        Gauge.builder("tripmind.warmer.tracked", this, PopularityTracker::size)
+            .description("Combinaciones de destino, duración y presupuesto con demanda registrada")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registra una solicitud; las que no tienen fechas válidas se ignoran
+     * @param request Datos del viaje
+     */
+    public void record(ItineraryRequest request) {
+        PopularityKey key;
+        try {
+            key = PopularityKey.from(ItineraryCacheKey.from(request));
+        } catch (RuntimeException e) {
+            return;
+        }
+        record(key, request, System.nanoTime());
+    }
+
+    private synchronized void record(PopularityKey key, ItineraryRequest request, long now) {
+        if ((now - landmark) / halfLifeNanos > MAX_EXPONENT) {
+            rebase(now);
+        }
+        double scale = scale(now);
+        pruneDecayed(scale);
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            byWeight.remove(entry);
+        } else {
+            entry = new Entry(key, nextId++);
+            if (entries.size() >= maxTracked) {
+                // Space-Saving: the newcomer takes the slot of the least requested combination
+                Entry evicted = byWeight.pollFirst();
+                entries.remove(evicted.key);
+                entry.weight = evicted.weight;
+                entry.error = evicted.weight;
+            }
+            entries.put(key, entry);
+        }
+        entry.weight += scale;
+        entry.sample = request;
+        byWeight.add(entry);
+    }
+
+    /**
+     * Devuelve lo más pedido
+     * @param limit Número máximo de combinaciones
+     * @param minScore Puntuación mínima (solicitudes recientes equivalentes)
+     * @return Última solicitud de cada combinación, de más a menos popular
+     */
+    public synchronized List<ItineraryRequest> top(int limit, double minScore) {
+        double scale = scale(System.nanoTime());
+        List<Ranked> ranked = new ArrayList<>();
+        for (Entry entry : byWeight.descendingSet()) {
+            // The weight is an upper bound of the guaranteed score, so nothing further down can qualify
+            if (entry.weight / scale < minScore) {
+                break;
+            }
+            double score = (entry.weight - entry.error) / scale;
+            if (score >= minScore) {
+                ranked.add(new Ranked(score, entry.sample));
+            }
+        }
+        return ranked.stream()
+            .sorted(Comparator.comparingDouble(Ranked::score).reversed())
+            .limit(limit)
+            .map(Ranked::sample)
+            .toList();
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Peso que vale una solicitud ahora, relativo al instante de referencia
+     */
+    private double scale(long now) {
+        return Math.pow(2, (now - landmark) / halfLifeNanos);
+    }
+
+    private void pruneDecayed(double scale) {
+        while (!byWeight.isEmpty() && byWeight.first().weight < MIN_SCORE * scale) {
+            entries.remove(byWeight.pollFirst().key);
+        }
+    }
+
+    /**
+     * Mueve el instante de referencia a ahora; dividir todos los pesos por igual no cambia el orden
+     */
+    private void rebase(long now) {
+        double scale = scale(now);
+        List<Entry> all = new ArrayList<>(byWeight);
+        byWeight.clear();
+        for (Entry entry : all) {
+            entry.weight /= scale;
+            entry.error /= scale;
+            byWeight.add(entry);
+        }
+        landmark = now;
+    }
+
+    private record PopularityKey(String destination, int duration, String budget) {
+
+        static PopularityKey from(ItineraryCacheKey key) {
+            return new PopularityKey(key.destination(), key.duration(), key.budget());
+        }
+    }
+
+    private static final class Entry {
+        private final PopularityKey key;
+        private final long id;
+        private double weight;
+        private double error;
+        private ItineraryRequest sample;
+
+        Entry(PopularityKey key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    private record Ranked(double score, ItineraryRequest sample) {}
+}
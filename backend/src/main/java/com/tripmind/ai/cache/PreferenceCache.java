@@ -0,0 +1,140 @@
+package com.tripmind.ai.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caché de lectura de las preferencias de usuario. Los fallos concurrentes del mismo usuario
+ * comparten una sola consulta y los usuarios sin preferencias también se cachean (con un TTL menor).
+ * Una escritura descarta la carga en curso de ese usuario, para que no guarde un valor anterior.
+ */
+@Component
+public class PreferenceCache {
+
+    private final TtlLruCache<String, String> entries;
+    private final TtlLruCache<String, Boolean> missing;
+    private final SingleFlight<String, Optional<String>> singleFlight = new SingleFlight<>();
+    // One token per user with a load in flight; a write removes it so that the load does not store
+    // a stale value. Check-and-store and writes both run inside compute(), serialized per user.
+    private final Map<String, Object> loading = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public PreferenceCache(@Value("${app.cache.preferences.max-size:10000}") int maxSize,
+                           @Value("${app.cache.preferences.ttl:10m}") Duration ttl,
+                           @Value("${app.cache.preferences.negative-ttl:1m}") Duration negativeTtl,
+                           MeterRegistry meterRegistry) {
+        this.entries = new TtlLruCache<>(maxSize, ttl);
+        this.missing = new TtlLruCache<>(maxSize, negativeTtl);
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.negativeHits = cacheCounter(meterRegistry, "negative-hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+        this.coalesced = cacheCounter(meterRegistry, "coalesced");
+        Gauge.builder("tripmind.preferences.cache.size", entries, TtlLruCache::size)
+            .description("Preferencias de usuario almacenadas en caché")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Obtiene las preferencias desde caché o las carga una sola vez para todas las peticiones concurrentes
+     * @param userId ID del usuario
+     * @param loader Consulta real (base de datos)
+     * @return Preferencias del usuario, vacío si no tiene
+     */
+    public Optional<String> get(String userId, Function<String, Optional<String>> loader) {
+        String cached = entries.get(userId);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        if (missing.get(userId) != null) {
+            negativeHits.increment();
+            return Optional.empty();
+        }
+
+        CompletableFuture<Optional<String>> call = singleFlight.execute(userId, () -> {
+            misses.increment();
+            Object token = new Object();
+            loading.put(userId, token);
+            Optional<String> loaded;
+            try {
+                loaded = loader.apply(userId);
+            } catch (RuntimeException e) {
+                loading.remove(userId, token);
+                throw e;
+            }
+            loading.computeIfPresent(userId, (id, current) -> {
+                if (current != token) {
+                    return current;
+                }
+                store(userId, loaded);
+                return null;
+            });
+            return CompletableFuture.completedFuture(loaded);
+        }, coalesced::increment);
+
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Actualiza la entrada tras escribir nuevas preferencias
+     * @param userId ID del usuario
+     * @param preferences Preferencias ya guardadas
+     */
+    public void put(String userId, String preferences) {
+        loading.compute(userId, (id, token) -> {
+            store(userId, Optional.of(preferences));
+            return null;
+        });
+    }
+
+    /**
+     * Elimina la entrada de un usuario; la siguiente lectura irá a la base de datos
+     * @param userId ID del usuario
+     */
+    public void invalidate(String userId) {
+        loading.compute(userId, (id, token) -> {
+            entries.invalidate(userId);
+            missing.invalidate(userId);
+            return null;
+        });
+    }
+
+    private void store(String userId, Optional<String> preferences) {
+        if (preferences.isPresent()) {
+            missing.invalidate(userId);
+            entries.put(userId, preferences.get());
+        } else {
+            entries.invalidate(userId);
+            missing.put(userId, Boolean.TRUE);
+        }
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tripmind.preferences.cache.requests")
+            .description("Consultas a la caché de preferencias")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,91 @@
+package com.tripmind.ai.cache;
+
+import com.tripmind.ai.dto.ItineraryResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Itinerario ya serializado a JSON (UTF-8), con su variante gzip calculada la primera vez que
+ * un cliente la acepta y un identificador derivado del contenido. Las respuestas escriben estos
+ * bytes directamente.
+ */
+public final class SerializedItinerary {
+
+    private final ItineraryResponse source;
+    private final byte[] json;
+    private volatile byte[] gzip;
+    private volatile String id;
+
+    SerializedItinerary(ItineraryResponse source, byte[] json) {
+        this.source = source;
+        this.json = json;
+    }
+
+    /**
+     * Entrada de la caché a partir de la que se generaron los bytes
+     */
+    ItineraryResponse getSource() {
+        return source;
+    }
+
+    /**
+     * Identificador por contenido: SHA-256 del JSON (128 bits en hexadecimal)
+     */
+    public String getId() {
+        String contentId = id;
+        if (contentId == null) {
+            contentId = hash(json);
+            id = contentId;
+        }
+        return contentId;
+    }
+
+    /**
+     * ETag fuerte de la representación; la variante gzip tiene el suyo porque sus bytes son otros
+     * @param gzipped Si se trata de la variante comprimida
+     */
+    public String getETag(boolean gzipped) {
+        return gzipped ? "\"" + getId() + "-gzip\"" : "\"" + getId() + "\"";
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * JSON comprimido con gzip; se calcula una sola vez (a lo sumo unas pocas si hay carrera)
+     */
+    public byte[] getGzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            compressed = compress(json);
+            gzip = compressed;
+        }
+        return compressed;
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(out, 8192)) {
+            gzipStream.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
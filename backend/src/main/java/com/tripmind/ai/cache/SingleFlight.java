@@ -0,0 +1,52 @@
+package com.tripmind.ai.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce llamadas concurrentes con la misma clave en una sola ejecución.
+ * Mientras una llamada está en curso, los demás solicitantes reciben el mismo resultado.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecuta el loader o se une a la ejecución en curso para la misma clave
+     * @param key Clave de la llamada
+     * @param loader Operación a ejecutar si no hay ninguna en curso
+     * @param onShared Callback invocado cuando el solicitante se une a una llamada existente
+     * @return Resultado compartido de la llamada
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader, Runnable onShared) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            onShared.run();
+            return existing;
+        }
+
+        try {
+            loader.get().whenComplete((value, error) -> {
+                inFlight.remove(key, promise);
+                if (error != null) {
+                    promise.completeExceptionally(error);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Número de llamadas en curso
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
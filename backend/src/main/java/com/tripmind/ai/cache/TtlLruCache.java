@@ -0,0 +1,92 @@
+package com.tripmind.ai.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché en memoria acotada por tamaño (LRU) y por tiempo de vida (TTL)
+ */
+public class TtlLruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public TtlLruCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize debe ser positivo: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlLruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Obtiene un valor vigente
+     * @param key Clave
+     * @return Valor almacenado o null si no existe o expiró
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Almacena un valor, desalojando la entrada menos usada si se supera el tamaño
+     * @param key Clave
+     * @param value Valor a almacenar
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * Cambia el tiempo de vida de una entrada vigente, contado desde ahora
+     * @param key Clave
+     * @param ttl Nuevo tiempo de vida
+     * @return true si la entrada existía y no había expirado
+     */
+    public synchronized boolean renew(K key, Duration ttl) {
+        V value = get(key);
+        if (value == null) {
+            return false;
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttl.toNanos()));
+        return true;
+    }
+
+    /**
+     * Elimina una entrada de la caché
+     * @param key Clave a invalidar
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+}
@@ -7,6 +7,8 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.reactive.function.client.WebClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.util.Arrays;
 
@@ -28,6 +30,9 @@ public class CorsConfig {
         
         // Headers permitidos
         configuration.setAllowedHeaders(Arrays.asList("*"));
+
+        // Headers que el frontend puede leer (ID y versión de los itinerarios, viajes guardados)
+        configuration.setExposedHeaders(Arrays.asList("ETag", "Content-Location", "Location"));
         
         // No permitir credenciales cuando se usa wildcard de origen
         configuration.setAllowCredentials(false);
@@ -41,7 +46,10 @@ public class CorsConfig {
 
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper();
+        // Instants (e.g. saved trips) as ISO-8601 strings
+        return new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     }
 
     @Bean
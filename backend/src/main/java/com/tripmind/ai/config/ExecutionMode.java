@@ -0,0 +1,16 @@
+package com.tripmind.ai.config;
+
+/**
+ * Modelo de ejecución de la generación de itinerarios (app.execution.mode)
+ */
+public enum ExecutionMode {
+
+    /** Pipeline no bloqueante sobre el event loop de WebClient */
+    REACTIVE,
+
+    /**
+     * Llamada bloqueante en el hilo de la petición: hilos de plataforma de Tomcat o
+     * hilos virtuales si spring.threads.virtual.enabled está activo
+     */
+    BLOCKING
+}
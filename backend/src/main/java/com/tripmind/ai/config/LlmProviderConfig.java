@@ -0,0 +1,124 @@
+package com.tripmind.ai.config;
+
+import com.tripmind.ai.prompt.ItineraryPromptBuilder;
+import com.tripmind.ai.provider.LlmProvider;
+import com.tripmind.ai.provider.LlmProviderRouter;
+import com.tripmind.ai.provider.OpenAiCompatibleProvider;
+import com.tripmind.ai.provider.ProviderCircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proveedores de IA declarados en app.ai.providers y el router que reparte las llamadas entre ellos.
+ * OpenRouter usa el cliente de OpenRouterClientConfig; el resto comparte su HttpClient (y con él el
+ * pool de conexiones, que Reactor Netty separa por host) con su propia URL base y clave.
+ */
+@Configuration
+public class LlmProviderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmProviderConfig.class);
+    private static final String OPENROUTER = "openrouter";
+
+    @Bean
+    public LlmProviderRouter llmProviderRouter(Environment environment,
+                                               WebClient.Builder webClientBuilder,
+                                               @Qualifier("openRouterHttpClient") HttpClient httpClient,
+                                               @Qualifier("openRouterWebClient") WebClient openRouterWebClient,
+                                               ItineraryPromptBuilder promptBuilder,
+                                               @Value("${OPENROUTER_MODEL:deepseek/deepseek-r1}") String openRouterModel,
+                                               @Value("${OPENROUTER_API_KEY:}") String openRouterApiKey,
+                                               @Value("${app.ai.provider:openrouter}") String preferredProvider,
+                                               @Value("${app.ai.routing.enabled:false}") boolean routingEnabled,
+                                               @Value("${app.ai.routing.smoothing:0.2}") double smoothing,
+                                               @Value("${app.ai.routing.max-error-rate:0.5}") double maxErrorRate,
+                                               @Value("${app.ai.routing.explore-rate:0.05}") double exploreRate,
+                                               @Value("${app.ai.circuit-breaker.window-size:20}") int circuitWindowSize,
+                                               @Value("${app.ai.circuit-breaker.minimum-calls:10}") int circuitMinimumCalls,
+                                               @Value("${app.ai.circuit-breaker.failure-rate-threshold:0.5}") double circuitFailureRate,
+                                               @Value("${app.ai.circuit-breaker.open-duration:30s}") Duration circuitOpenDuration,
+                                               @Value("${app.ai.circuit-breaker.half-open-probes:3}") int circuitHalfOpenProbes,
+                                               MeterRegistry meterRegistry) {
+        // OpenRouter stays on unless it is explicitly disabled, as before there was a choice of providers
+        Map<String, ProviderSettings> settings = new LinkedHashMap<>();
+        settings.put(OPENROUTER, new ProviderSettings(true, null, null, null, true));
+        settings.putAll(Binder.get(environment)
+            .bind("app.ai.providers", Bindable.mapOf(String.class, ProviderSettings.class))
+            .orElse(Map.of()));
+
+        List<LlmProvider> providers = new ArrayList<>();
+        settings.forEach((name, provider) -> {
+            if (!provider.enabled()) {
+                return;
+            }
+            // Structured output sends no schema in the prompt, so a provider that ignores it cannot take part
+            if (promptBuilder.isStructuredOutput() && !provider.structuredOutput()) {
+                log.warn("AI provider {} does not support structured output and is left out", name);
+                return;
+            }
+            if (OPENROUTER.equals(name)) {
+                if (openRouterApiKey.isBlank()) {
+                    log.warn("OPENROUTER_API_KEY is not set: OpenRouter is left out and itineraries fall back to the mock");
+                    return;
+                }
+                String model = provider.model() != null ? provider.model() : openRouterModel;
+                providers.add(new OpenAiCompatibleProvider(name, model, openRouterWebClient, provider.structuredOutput(), true));
+            } else {
+                if (provider.baseUrl() == null || provider.model() == null) {
+                    throw new IllegalStateException("El proveedor de IA " + name + " necesita base-url y model");
+                }
+                providers.add(new OpenAiCompatibleProvider(name, provider.model(),
+                    webClient(webClientBuilder, httpClient, provider), provider.structuredOutput(), false));
+            }
+        });
+
+        log.info("AI providers: {} (preferred {}, routing {})",
+            providers.stream().map(LlmProvider::getName).toList(), preferredProvider, routingEnabled ? "on" : "off");
+        ProviderCircuitBreaker.Settings circuitBreaker = new ProviderCircuitBreaker.Settings(circuitWindowSize,
+            circuitMinimumCalls, circuitFailureRate, circuitOpenDuration, circuitHalfOpenProbes);
+        return new LlmProviderRouter(providers, preferredProvider, routingEnabled, smoothing, maxErrorRate,
+            exploreRate, circuitBreaker, meterRegistry);
+    }
+
+    private WebClient webClient(WebClient.Builder webClientBuilder, HttpClient httpClient, ProviderSettings provider) {
+        WebClient.Builder builder = webClientBuilder.clone()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .baseUrl(provider.baseUrl())
+            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        // Local servers usually run without a key
+        if (provider.apiKey() != null && !provider.apiKey().isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + provider.apiKey());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Configuración de un proveedor en app.ai.providers.&lt;nombre&gt;
+     * @param enabled Si recibe llamadas
+     * @param baseUrl URL base de la API compatible con OpenAI (OpenRouter usa app.ai.openrouter.base-url)
+     * @param apiKey Clave de la API, vacía si no hace falta
+     * @param model Modelo que se pide por defecto
+     * @param structuredOutput Si admite response_format con json_schema
+     */
+    public record ProviderSettings(@DefaultValue("false") boolean enabled, String baseUrl, String apiKey, String model,
+                                   @DefaultValue("true") boolean structuredOutput) {}
+}
@@ -0,0 +1,128 @@
+package com.tripmind.ai.config;
+
+import com.tripmind.ai.provider.LlmProviderRouter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente HTTP dedicado a OpenRouter: pool de conexiones propio de Reactor Netty, HTTP/2 cuando
+ * el servidor lo negocia, gzip, timeouts de conexión y lectura, y pre-calentamiento al arrancar
+ * para que las primeras peticiones no paguen DNS ni TLS
+ */
+@Configuration
+public class OpenRouterClientConfig {
+
+    @Value("${app.ai.openrouter.base-url:https://openrouter.ai/api/v1}")
+    private String baseUrl;
+
+    // No default: without a key LlmProviderConfig leaves OpenRouter out and generation falls back to the mock
+    @Value("${OPENROUTER_API_KEY:}")
+    private String apiKey;
+
+    @Value("${app.ai.openrouter.client.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${app.ai.openrouter.client.read-timeout:120s}")
+    private Duration readTimeout;
+
+    @Value("${app.ai.openrouter.client.response-timeout:120s}")
+    private Duration responseTimeout;
+
+    @Value("${app.ai.openrouter.client.http2:true}")
+    private boolean http2;
+
+    @Value("${app.ai.openrouter.client.warmup-connections:2}")
+    private int warmupConnections;
+
+    @Value("${app.ai.openrouter.client.warmup-path:/models}")
+    private String warmupPath;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openRouterConnectionProvider(
+            @Value("${app.ai.openrouter.client.max-connections:100}") int maxConnections,
+            @Value("${app.ai.openrouter.client.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${app.ai.openrouter.client.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+            @Value("${app.ai.openrouter.client.max-idle-time:60s}") Duration maxIdleTime,
+            @Value("${app.ai.openrouter.client.max-life-time:10m}") Duration maxLifeTime,
+            @Value("${app.ai.openrouter.client.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("openrouter")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(pendingAcquireMaxCount)
+            .pendingAcquireTimeout(pendingAcquireTimeout)
+            .maxIdleTime(maxIdleTime)
+            .maxLifeTime(maxLifeTime)
+            .evictInBackground(evictInterval)
+            .lifo()
+            // Exposes reactor.netty.connection.provider.* (active, idle, pending) through Micrometer
+            .metrics(true)
+            .build();
+    }
+
+    @Bean
+    public HttpClient openRouterHttpClient(@Qualifier("openRouterConnectionProvider") ConnectionProvider connectionProvider) {
+        // HTTP/2 is negotiated through ALPN, so it is only offered over TLS
+        HttpProtocol[] protocols = http2 && baseUrl.startsWith("https")
+            ? new HttpProtocol[] {HttpProtocol.H2, HttpProtocol.HTTP11}
+            : new HttpProtocol[] {HttpProtocol.HTTP11};
+
+        return HttpClient.create(connectionProvider)
+            .protocol(protocols)
+            .compress(true)
+            .keepAlive(true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .responseTimeout(responseTimeout)
+            .doOnConnected(connection -> connection.addHandlerLast(
+                new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)))
+            .metrics(true, uri -> "/chat/completions");
+    }
+
+    @Bean
+    public WebClient openRouterWebClient(WebClient.Builder webClientBuilder,
+                                         @Qualifier("openRouterHttpClient") HttpClient httpClient) {
+        WebClient.Builder builder = webClientBuilder.clone()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .baseUrl(baseUrl)
+            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        if (!apiKey.isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Pre-calienta el event loop, el resolver DNS y unas pocas conexiones (TCP + TLS) con cada
+     * proveedor habilitado al arrancar. Se ejecuta en segundo plano y los errores se ignoran:
+     * solo es una optimización.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOpenRouterConnections(ApplicationReadyEvent event) {
+        HttpClient httpClient = event.getApplicationContext().getBean("openRouterHttpClient", HttpClient.class);
+        LlmProviderRouter router = event.getApplicationContext().getBean(LlmProviderRouter.class);
+
+        httpClient.warmup()
+            .thenMany(Flux.fromIterable(router.getProviders())
+                .flatMap(provider -> Flux.range(0, warmupConnections)
+                    .flatMap(i -> provider.warmUp(warmupPath))))
+            .onErrorResume(e -> Mono.empty())
+            .subscribe();
+    }
+}
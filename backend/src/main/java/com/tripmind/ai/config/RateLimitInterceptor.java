@@ -0,0 +1,71 @@
+package com.tripmind.ai.config;
+
+import com.tripmind.ai.service.ClientRateLimiter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Aplica el límite por cliente a los endpoints de generación antes de leer el cuerpo de la
+ * petición: el cliente se identifica por su X-API-Key si es una de las claves configuradas
+ * (app.admission.rate-limit.api-keys) y, si no, por su IP. Una clave desconocida no cuenta, porque
+ * bastaría con cambiarla en cada petición para no agotar nunca el bucket.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final Set<String> apiKeys;
+
+    public RateLimitInterceptor(ClientRateLimiter clientRateLimiter,
+                                @Value("${app.admission.rate-limit.api-keys:}") String apiKeys) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.apiKeys = Arrays.stream(apiKeys.split(","))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // CORS preflights carry no API key and never generate anything. Reactive handlers are
+        // dispatched a second time to write the result, which must not cost another token.
+        if (!"POST".equals(request.getMethod()) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        Duration retryAfter = clientRateLimiter.tryAcquire(clientId(request));
+        if (retryAfter.isZero()) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("Demasiadas solicitudes: inténtalo de nuevo más tarde");
+        return false;
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (apiKey != null && apiKeys.contains(apiKey.trim())) {
+            return "key:" + apiKey.trim();
+        }
+        // Behind a proxy, server.forward-headers-strategy makes this the original client address
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tripmind.ai.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración de Spring MVC: control de admisión en los endpoints que generan itinerarios
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    public WebConfig(RateLimitInterceptor rateLimitInterceptor) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor)
+            .addPathPatterns("/api/generate-itinerary", "/api/generate-itinerary/stream",
+                "/api/generate-itineraries", "/api/itinerary-jobs");
+    }
+}
@@ -1,12 +1,37 @@
 package com.tripmind.ai.controller;
 
+import com.tripmind.ai.cache.ItineraryStore;
+import com.tripmind.ai.cache.PopularityTracker;
+import com.tripmind.ai.cache.SerializedItinerary;
+import com.tripmind.ai.config.ExecutionMode;
 import com.tripmind.ai.dto.*;
+import com.tripmind.ai.service.FallbackCause;
+import com.tripmind.ai.service.ItineraryGenerationService;
+import com.tripmind.ai.service.ItineraryJob;
+import com.tripmind.ai.service.ItineraryJobService;
 import com.tripmind.ai.service.ItineraryService;
+import com.tripmind.ai.service.JobPriority;
+import com.tripmind.ai.service.JobQueueFullException;
 import com.tripmind.ai.service.OpenRouterService;
+import com.tripmind.ai.service.PreferenceService;
+import com.tripmind.ai.service.TripQueueFullException;
+import com.tripmind.ai.service.TripStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -23,26 +48,275 @@ public class ItineraryController {
     @Autowired
     private OpenRouterService openRouterService;
 
+    @Autowired
+    private ItineraryGenerationService itineraryGenerationService;
+
+    @Autowired
+    private TripStore tripStore;
+
+    @Autowired
+    private PreferenceService preferenceService;
+
+    @Autowired
+    private ItineraryStore itineraryStore;
+
+    @Autowired
+    private ItineraryJobService itineraryJobService;
+
+    @Autowired
+    private PopularityTracker popularityTracker;
+
+    @Value("${app.execution.mode:reactive}")
+    private ExecutionMode executionMode;
+
+    @Value("${app.jobs.poll.default-wait:20s}")
+    private Duration defaultPollWait;
+
+    @Value("${app.jobs.poll.max-wait:25s}")
+    private Duration maxPollWait;
+
+    // The content behind an itinerary ID never changes
+    private static final CacheControl ITINERARY_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePrivate().immutable();
+
     /**
-     * Genera un itinerario de viaje personalizado
+     * Genera un itinerario de viaje personalizado. La respuesta incluye Content-Location y ETag
+     * para volver a pedirlo con GET /api/itineraries/{id} sin generarlo de nuevo.
      * @param request Datos del viaje (destino, fechas, preferencias)
      * @return Itinerario generado por IA
      */
     @PostMapping("/generate-itinerary")
-    public ResponseEntity<?> generateItinerary(@RequestBody ItineraryRequest request) {
+    public Mono<ResponseEntity<?>> generateItinerary(@RequestBody ItineraryRequest request,
+                                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                     String acceptEncoding) {
+        popularityTracker.record(request);
+        SerializedItinerary cached = itineraryGenerationService.findSerialized(request);
+        if (cached != null) {
+            return Mono.just(serializedResponse(itineraryStore.put(cached), acceptEncoding));
+        }
+
+        Mono<ItineraryResponse> itinerary = executionMode == ExecutionMode.BLOCKING
+            // Subscribed on the request thread: platform or virtual depending on spring.threads.virtual.enabled
+            ? Mono.fromCallable(() -> itineraryGenerationService.generateBlocking(request))
+            // Non-blocking: the servlet thread is released while the AI call is in flight
+            : itineraryGenerationService.generate(request);
+
+        return itinerary
+            .<ResponseEntity<?>>map(response -> serializedResponse(itineraryStore.put(response), acceptEncoding))
+            .onErrorResume(e -> {
+                if (FallbackCause.of(e) == FallbackCause.SHED) {
+                    return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body("Error al generar itinerario: servicio saturado, inténtalo de nuevo más tarde"));
+                }
+                return Mono.just(ResponseEntity.badRequest().body("Error al generar itinerario: " + e.getMessage()));
+            });
+    }
+
+    /**
+     * Genera un itinerario en streaming (Server-Sent Events): un evento "day" por cada día
+     * en cuanto el modelo lo completa, seguido de "accommodation" y "complete"
+     * @param request Datos del viaje (destino, fechas, preferencias)
+     * @return Flujo de eventos del itinerario
+     */
+    @PostMapping(value = "/generate-itinerary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamItinerary(@RequestBody ItineraryRequest request) {
+        popularityTracker.record(request);
+        return itineraryGenerationService.stream(request).map(this::toServerSentEvent);
+    }
+
+    /**
+     * Genera un lote de itinerarios y devuelve cada uno como una línea NDJSON en cuanto termina.
+     * Las solicitudes equivalentes se generan una sola vez y los fallos caen al mock por separado.
+     * @param requests Solicitudes del lote
+     * @return Resultados con la posición de cada solicitud en el lote
+     */
+    @PostMapping(value = "/generate-itineraries", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchItineraryResult> generateItineraries(@RequestBody List<ItineraryRequest> requests) {
         try {
-            // Try AI generation first, fallback to mock if it fails
-            ItineraryResponse response = openRouterService.generateItinerary(request);
-            return ResponseEntity.ok(response);
+            return itineraryGenerationService.generateBatch(requests)
+                .doOnNext(result -> {
+                    if (result.getItinerary() != null) {
+                        result.setItineraryId(itineraryStore.put(result.getItinerary()).getId());
+                    }
+                });
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene un itinerario ya generado por su ID de contenido. Admite If-None-Match (304)
+     * @param itineraryId Hash del contenido devuelto en Content-Location
+     * @return Itinerario generado
+     */
+    @GetMapping("/itineraries/{itineraryId}")
+    public ResponseEntity<?> getItinerary(@PathVariable String itineraryId,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SerializedItinerary itinerary = itineraryStore.get(itineraryId);
+        if (itinerary == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        boolean gzipped = acceptsGzip(acceptEncoding);
+        if (matchesETag(ifNoneMatch, itinerary)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(itinerary.getETag(gzipped))
+                .cacheControl(ITINERARY_CACHE_CONTROL)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        return serializedResponse(itinerary, acceptEncoding);
+    }
+
+    /**
+     * Encola la generación de un itinerario y responde al instante con el ID del trabajo
+     * @param request Datos del viaje (destino, fechas, preferencias)
+     * @param priority Carril: interactive, background o prefetch
+     * @return 202 con Location al estado del trabajo
+     */
+    @PostMapping("/itinerary-jobs")
+    public ResponseEntity<?> submitItineraryJob(@RequestBody ItineraryRequest request,
+                                                @RequestParam(defaultValue = "interactive") String priority) {
+        try {
+            JobPriority jobPriority = JobPriority.of(priority);
+            if (jobPriority != JobPriority.PREFETCH) {
+                popularityTracker.record(request);
+            }
+            ItineraryJob job = itineraryJobService.submit(request, jobPriority);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/itinerary-jobs/" + job.getId()))
+                .body(toJobStatus(job));
+        } catch (JobQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body("Error al encolar itinerario: " + e.getMessage());
         } catch (Exception e) {
-            // Fallback to mock data if AI fails
-            try {
-                ItineraryResponse response = itineraryService.generateMockItinerary(request);
-                return ResponseEntity.ok(response);
-            } catch (Exception fallbackException) {
-                return ResponseEntity.badRequest().body("Error al generar itinerario: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Error al encolar itinerario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Consulta un trabajo de generación. Con wait la respuesta se retiene (long-polling) hasta que
+     * el trabajo termina o vence la espera: 200 si ya terminó, 202 si sigue en cola o en curso.
+     * @param jobId ID del trabajo
+     * @param wait Espera máxima (por ejemplo 20s o 500ms; 0 para responder al instante), limitada a
+     *             app.jobs.poll.max-wait
+     * @return Estado del trabajo y, si terminó, el itinerario; 400 si wait no es una duración válida
+     */
+    @GetMapping("/itinerary-jobs/{jobId}")
+    public Mono<ResponseEntity<?>> getItineraryJob(@PathVariable String jobId,
+                                                   @RequestParam(required = false) String wait) {
+        Duration pollWait;
+        try {
+            pollWait = wait == null ? defaultPollWait : DurationStyle.detectAndParse(wait.trim());
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body("Parámetro wait no válido: " + wait));
+        }
+        if (pollWait.isNegative()) {
+            return Mono.just(ResponseEntity.badRequest().body("Parámetro wait no válido: " + wait));
+        }
+
+        ItineraryJob job = itineraryJobService.find(jobId);
+        if (job == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        if (job.isDone() || pollWait.isZero()) {
+            return Mono.just(jobResponse(job));
+        }
+        // Kept below the frontend timeout; the job itself keeps running when the wait expires
+        if (pollWait.compareTo(maxPollWait) > 0) {
+            pollWait = maxPollWait;
+        }
+        return Mono.fromFuture(job.getCompletion(), true)
+            .timeout(pollWait, Mono.just(job))
+            .map(this::jobResponse);
+    }
+
+    private ResponseEntity<?> jobResponse(ItineraryJob job) {
+        if (!job.isDone()) {
+            return ResponseEntity.accepted()
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(toJobStatus(job));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (job.getItineraryId() != null) {
+            response.header(HttpHeaders.CONTENT_LOCATION, "/api/itineraries/" + job.getItineraryId());
+        }
+        return response.body(toJobStatus(job));
+    }
+
+    private static ItineraryJobStatus toJobStatus(ItineraryJob job) {
+        return new ItineraryJobStatus(
+            job.getId(),
+            job.getStatus().name().toLowerCase(),
+            job.getPriority().getTag(),
+            job.getSubmittedAt(),
+            job.getStartedAt(),
+            job.getFinishedAt(),
+            job.getItineraryId(),
+            job.getItinerary(),
+            job.getError()
+        );
+    }
+
+    /**
+     * Escribe los bytes ya serializados (o ya comprimidos) de un itinerario, con su ETag y su URL
+     */
+    private ResponseEntity<?> serializedResponse(SerializedItinerary itinerary, String acceptEncoding) {
+        boolean gzipped = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(itinerary.getETag(gzipped))
+            .cacheControl(ITINERARY_CACHE_CONTROL)
+            .header(HttpHeaders.CONTENT_LOCATION, "/api/itineraries/" + itinerary.getId())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(itinerary.getGzip());
+        }
+        return response.body(itinerary.getJson());
+    }
+
+    /**
+     * If-None-Match con cualquiera de los ETag del itinerario (JSON o gzip) o con "*"
+     */
+    private static boolean matchesETag(String ifNoneMatch, SerializedItinerary itinerary) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(itinerary.getETag(false)) || candidate.equals(itinerary.getETag(true))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
             }
+            // gzip;q=0 explicitly refuses the encoding
+            boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+            return !refused;
         }
+        return false;
+    }
+
+    private ServerSentEvent<Object> toServerSentEvent(ItineraryStreamEvent event) {
+        return ServerSentEvent.builder(event.getData())
+            .event(event.getType())
+            .build();
     }
 
     /**
@@ -77,13 +351,32 @@ public class ItineraryController {
     @PostMapping("/save-trip")
     public ResponseEntity<?> saveTrip(@RequestBody TripRequest request) {
         try {
-            // TODO: Implementar persistencia de viajes
-            return ResponseEntity.ok("Viaje guardado exitosamente");
+            // Accepted right away, written to the database in the next batch
+            String tripId = tripStore.save(request.getUserId(), request.getTripData());
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/trips/" + tripId))
+                .body(tripId);
+        } catch (TripQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Error al guardar viaje: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al guardar viaje: " + e.getMessage());
         }
     }
 
+    /**
+     * Obtiene un viaje guardado, incluso si todavía no se ha escrito en base de datos
+     * @param tripId ID del viaje
+     * @return Viaje guardado
+     */
+    @GetMapping("/trips/{tripId}")
+    public ResponseEntity<?> getTrip(@PathVariable String tripId) {
+        return tripStore.find(tripId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     /**
      * Obtiene las preferencias del usuario
      * @param userId ID del usuario
@@ -92,13 +385,30 @@ public class ItineraryController {
     @GetMapping("/user/preferences")
     public ResponseEntity<?> getUserPreferences(@RequestParam String userId) {
         try {
-            // TODO: Implementar obtención de preferencias del usuario
-            return ResponseEntity.ok("Preferencias del usuario: " + userId);
+            return preferenceService.getPreferences(userId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al obtener preferencias: " + e.getMessage());
         }
     }
 
+    /**
+     * Guarda las preferencias del usuario
+     * @param userId ID del usuario
+     * @param preferences Preferencias serializadas (JSON)
+     * @return Confirmación de guardado
+     */
+    @PutMapping("/user/preferences")
+    public ResponseEntity<?> updateUserPreferences(@RequestParam String userId, @RequestBody String preferences) {
+        try {
+            preferenceService.savePreferences(userId, preferences);
+            return ResponseEntity.ok("Preferencias guardadas");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error al guardar preferencias: " + e.getMessage());
+        }
+    }
+
     // Clases internas para requests
     public static class ItineraryRequest {
         private String destination;
@@ -0,0 +1,42 @@
+package com.tripmind.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de un elemento de la generación por lotes. Los resultados llegan en el orden en que
+ * terminan, así que index indica la posición de la solicitud en el lote.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItineraryResult {
+    private int index;
+    private String source;
+    private String itineraryId;
+    private ItineraryResponse itinerary;
+    private String error;
+
+    // Constructors
+    public BatchItineraryResult() {}
+
+    public BatchItineraryResult(int index, String source, ItineraryResponse itinerary, String error) {
+        this.index = index;
+        this.source = source;
+        this.itinerary = itinerary;
+        this.error = error;
+    }
+
+    // Getters and Setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public String getItineraryId() { return itineraryId; }
+    public void setItineraryId(String itineraryId) { this.itineraryId = itineraryId; }
+
+    public ItineraryResponse getItinerary() { return itinerary; }
+    public void setItinerary(ItineraryResponse itinerary) { this.itinerary = itinerary; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,66 @@
+package com.tripmind.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Estado de un trabajo de generación asíncrona, tal como lo consulta el frontend
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItineraryJobStatus {
+    private String id;
+    private String status;
+    private String priority;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String itineraryId;
+    private ItineraryResponse itinerary;
+    private String error;
+
+    // Constructors
+    public ItineraryJobStatus() {}
+
+    public ItineraryJobStatus(String id, String status, String priority, Instant submittedAt,
+                              Instant startedAt, Instant finishedAt, String itineraryId,
+                              ItineraryResponse itinerary, String error) {
+        this.id = id;
+        this.status = status;
+        this.priority = priority;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.itineraryId = itineraryId;
+        this.itinerary = itinerary;
+        this.error = error;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+
+    public Instant getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(Instant submittedAt) { this.submittedAt = submittedAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getItineraryId() { return itineraryId; }
+    public void setItineraryId(String itineraryId) { this.itineraryId = itineraryId; }
+
+    public ItineraryResponse getItinerary() { return itinerary; }
+    public void setItinerary(ItineraryResponse itinerary) { this.itinerary = itinerary; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
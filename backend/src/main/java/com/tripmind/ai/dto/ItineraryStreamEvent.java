@@ -0,0 +1,48 @@
+package com.tripmind.ai.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evento emitido durante la generación en streaming de un itinerario
+ */
+public class ItineraryStreamEvent {
+
+    public static final String DAY = "day";
+    public static final String ACCOMMODATION = "accommodation";
+    public static final String COMPLETE = "complete";
+    public static final String ERROR = "error";
+
+    private String type;
+    private Object data;
+
+    // Constructors
+    public ItineraryStreamEvent() {}
+
+    public ItineraryStreamEvent(String type, Object data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    /**
+     * Descompone un itinerario completo en la misma secuencia de eventos que produce el streaming
+     * @param itinerary Itinerario completo
+     * @return Eventos de días, alojamiento y cierre
+     */
+    public static List<ItineraryStreamEvent> fromItinerary(ItineraryResponse itinerary) {
+        List<ItineraryStreamEvent> events = new ArrayList<>();
+        for (DayItinerary day : itinerary.getDays()) {
+            events.add(new ItineraryStreamEvent(DAY, day));
+        }
+        events.add(new ItineraryStreamEvent(ACCOMMODATION, itinerary.getAccommodation()));
+        events.add(new ItineraryStreamEvent(COMPLETE, itinerary));
+        return events;
+    }
+
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Object getData() { return data; }
+    public void setData(Object data) { this.data = data; }
+}
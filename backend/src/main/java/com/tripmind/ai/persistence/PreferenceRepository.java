@@ -0,0 +1,53 @@
+package com.tripmind.ai.persistence;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Acceso JDBC a la tabla user_preferences (ver schema.sql)
+ */
+@Repository
+public class PreferenceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PreferenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Busca las preferencias de un usuario
+     * @param userId ID del usuario
+     * @return Preferencias guardadas, si existen
+     */
+    public Optional<String> findByUserId(String userId) {
+        return jdbcTemplate.queryForList("SELECT preferences FROM user_preferences WHERE user_id = ?", String.class, userId)
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Crea o reemplaza las preferencias de un usuario. UPDATE seguido de INSERT funciona igual
+     * en H2 y en PostgreSQL; si otro escritor inserta a la vez, se reintenta el UPDATE.
+     * @param userId ID del usuario
+     * @param preferences Preferencias serializadas
+     */
+    public void save(String userId, String preferences) {
+        Timestamp now = Timestamp.from(Instant.now());
+        String update = "UPDATE user_preferences SET preferences = ?, updated_at = ? WHERE user_id = ?";
+        if (jdbcTemplate.update(update, preferences, now, userId) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO user_preferences (user_id, preferences, updated_at) VALUES (?, ?, ?)",
+                userId, preferences, now);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(update, preferences, now, userId);
+        }
+    }
+}
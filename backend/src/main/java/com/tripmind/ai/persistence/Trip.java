@@ -0,0 +1,8 @@
+package com.tripmind.ai.persistence;
+
+import java.time.Instant;
+
+/**
+ * Viaje guardado por un usuario. tripData es el itinerario serializado por el frontend.
+ */
+public record Trip(String id, String userId, String tripData, Instant createdAt) {}
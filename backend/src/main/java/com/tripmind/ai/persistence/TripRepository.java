@@ -0,0 +1,57 @@
+package com.tripmind.ai.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acceso JDBC a la tabla trips (ver schema.sql)
+ */
+@Repository
+public class TripRepository {
+
+    private static final RowMapper<Trip> TRIP_MAPPER = (rs, rowNum) -> new Trip(
+        rs.getString("id"),
+        rs.getString("user_id"),
+        rs.getString("trip_data"),
+        rs.getTimestamp("created_at").toInstant()
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TripRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserta los viajes en un único batch JDBC
+     * @param trips Viajes a insertar
+     */
+    public void saveAll(List<Trip> trips) {
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO trips (id, user_id, trip_data, created_at) VALUES (?, ?, ?, ?)",
+            trips,
+            trips.size(),
+            (ps, trip) -> {
+                ps.setString(1, trip.id());
+                ps.setString(2, trip.userId());
+                ps.setString(3, trip.tripData());
+                ps.setTimestamp(4, Timestamp.from(trip.createdAt()));
+            });
+    }
+
+    /**
+     * Busca un viaje por su ID
+     * @param id ID del viaje
+     * @return Viaje guardado, si existe
+     */
+    public Optional<Trip> findById(String id) {
+        return jdbcTemplate.query("SELECT id, user_id, trip_data, created_at FROM trips WHERE id = ?", TRIP_MAPPER, id)
+            .stream()
+            .findFirst();
+    }
+}
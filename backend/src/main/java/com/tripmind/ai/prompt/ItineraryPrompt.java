@@ -0,0 +1,19 @@
+package com.tripmind.ai.prompt;
+
+/**
+ * Prompt listo para enviar al modelo junto con su presupuesto de tokens de salida
+ * @param content Texto del mensaje (prefijo estático + datos del viaje)
+ * @param maxTokens Límite de tokens de salida para esta petición
+ * @param firstDay Primer día pedido (desde 1)
+ * @param lastDay Último día pedido (incluido); menor que firstDay si no se piden días
+ * @param includesExtras Si se pide también el alojamiento y los consejos
+ */
+public record ItineraryPrompt(String content, int maxTokens, int firstDay, int lastDay, boolean includesExtras) {
+
+    /**
+     * Número de días pedidos
+     */
+    public int dayCount() {
+        return Math.max(0, lastDay - firstDay + 1);
+    }
+}
@@ -0,0 +1,170 @@
+package com.tripmind.ai.prompt;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Construye los prompts de itinerario a partir de plantillas compiladas al arrancar.
+ * Todas las peticiones comparten el mismo prefijo (instrucciones + esquema compacto), idéntico
+ * byte a byte, para que el proveedor pueda reutilizar su caché de prompts; los datos del viaje van al final.
+ * En modo de salida estructurada el esquema viaja en response_format y el prefijo solo lleva las instrucciones.
+ */
+@Component
+public class ItineraryPromptBuilder {
+
+    private final String staticPrefix;
+    private final PromptTemplate tripTemplate;
+    private final PromptTemplate rangeTemplate;
+    private final String rangeExtrasInstruction;
+    private final PromptTemplate continuationTemplate;
+    private final String extrasOnlyInstruction;
+
+    private final int baseTokens;
+    private final int tokensPerDay;
+    private final int minTokens;
+    private final int maxTokens;
+    private final boolean structuredOutput;
+
+    public ItineraryPromptBuilder(@Value("${app.ai.prompt.max-tokens.base:1500}") int baseTokens,
+                                  @Value("${app.ai.prompt.max-tokens.per-day:650}") int tokensPerDay,
+                                  @Value("${app.ai.prompt.max-tokens.min:4000}") int minTokens,
+                                  @Value("${app.ai.prompt.max-tokens.max:8000}") int maxTokens,
+                                  @Value("${app.ai.structured-output.enabled:false}") boolean structuredOutput) {
+        PromptTemplate prefix = PromptTemplate.compile(load(structuredOutput
+            ? "prompts/itinerary-structured-prefix.txt"
+            : "prompts/itinerary-prefix.txt"));
+        if (!prefix.isStatic()) {
+            throw new IllegalStateException("El prefijo del prompt no puede tener marcadores");
+        }
+        this.staticPrefix = prefix.render(Map.of());
+        this.tripTemplate = PromptTemplate.compile(load("prompts/itinerary-trip.txt"));
+        this.rangeTemplate = PromptTemplate.compile(load("prompts/itinerary-range.txt"));
+        this.rangeExtrasInstruction = load("prompts/itinerary-range-extras.txt");
+        this.continuationTemplate = PromptTemplate.compile(load("prompts/itinerary-continuation.txt"));
+        this.extrasOnlyInstruction = load("prompts/itinerary-extras-only.txt");
+        this.baseTokens = baseTokens;
+        this.tokensPerDay = tokensPerDay;
+        this.minTokens = minTokens;
+        this.maxTokens = maxTokens;
+        this.structuredOutput = structuredOutput;
+    }
+
+    /**
+     * Prompt para generar un rango de días del viaje; si el rango cubre todo el viaje es el prompt completo
+     * @param request Datos del viaje
+     * @param firstDay Primer día del rango (desde 1)
+     * @param lastDay Último día del rango (incluido)
+     * @param duration Duración total del viaje en días
+     * @return Prompt con su límite de tokens
+     */
+    public ItineraryPrompt build(ItineraryRequest request, int firstDay, int lastDay, int duration) {
+        Map<String, Object> values = tripValues(request, duration);
+        StringBuilder content = new StringBuilder(staticPrefix.length() + 512);
+        content.append(staticPrefix);
+        tripTemplate.appendTo(content, values);
+
+        if (firstDay > 1 || lastDay < duration) {
+            appendRange(content, values, request, firstDay, lastDay);
+            if (firstDay > 1) {
+                content.append(rangeExtrasInstruction);
+            }
+        }
+
+        return new ItineraryPrompt(content.toString(), maxTokensFor(lastDay - firstDay + 1), firstDay, lastDay, firstDay == 1);
+    }
+
+    /**
+     * Prompt de continuación tras una respuesta cortada por el límite de tokens: pide solo los días
+     * que faltan y, si no llegaron, el alojamiento y los consejos
+     * @param request Datos del viaje
+     * @param firstDay Primer día que falta (desde 1)
+     * @param lastDay Último día pedido originalmente; si es menor que firstDay no falta ningún día
+     * @param duration Duración total del viaje en días
+     * @param includeExtras Si hay que pedir también el alojamiento y los consejos
+     * @return Prompt con su límite de tokens
+     */
+    public ItineraryPrompt buildContinuation(ItineraryRequest request, int firstDay, int lastDay, int duration,
+                                             boolean includeExtras) {
+        Map<String, Object> values = tripValues(request, duration);
+        StringBuilder content = new StringBuilder(staticPrefix.length() + 640);
+        content.append(staticPrefix);
+        tripTemplate.appendTo(content, values);
+
+        if (firstDay > lastDay) {
+            content.append(extrasOnlyInstruction);
+            return new ItineraryPrompt(content.toString(), maxTokensFor(0), firstDay, lastDay, true);
+        }
+
+        appendRange(content, values, request, firstDay, lastDay);
+        values.put("previousDay", firstDay - 1);
+        continuationTemplate.appendTo(content, values);
+        if (!includeExtras) {
+            content.append(rangeExtrasInstruction);
+        }
+        return new ItineraryPrompt(content.toString(), maxTokensFor(lastDay - firstDay + 1), firstDay, lastDay, includeExtras);
+    }
+
+    private Map<String, Object> tripValues(ItineraryRequest request, int duration) {
+        List<String> interests = request.getInterests() != null ? request.getInterests() : List.of();
+        Map<String, Object> values = new HashMap<>(16);
+        values.put("destination", request.getDestination());
+        values.put("startDate", request.getStartDate());
+        values.put("endDate", request.getEndDate());
+        values.put("duration", duration);
+        values.put("travelers", request.getTravelers());
+        values.put("budget", request.getBudget());
+        values.put("interests", String.join(", ", interests));
+        return values;
+    }
+
+    private void appendRange(StringBuilder content, Map<String, Object> values, ItineraryRequest request,
+                             int firstDay, int lastDay) {
+        LocalDate startDate = LocalDate.parse(request.getStartDate());
+        values.put("firstDay", firstDay);
+        values.put("lastDay", lastDay);
+        values.put("firstDate", startDate.plusDays(firstDay - 1L));
+        values.put("lastDate", startDate.plusDays(lastDay - 1L));
+        rangeTemplate.appendTo(content, values);
+    }
+
+    /**
+     * Presupuesto de salida proporcional a los días pedidos (incluye margen para el razonamiento).
+     * Nunca baja del mínimo: los tokens de razonamiento cuentan en max_tokens aunque se oculten en
+     * la respuesta, así que un viaje corto o una continuación con solo los extras también los necesitan.
+     */
+    public int maxTokensFor(int days) {
+        return Math.max(minTokens, Math.min(maxTokens, baseTokens + tokensPerDay * days));
+    }
+
+    /**
+     * Prefijo estático compartido por todos los prompts
+     */
+    public String getStaticPrefix() {
+        return staticPrefix;
+    }
+
+    /**
+     * Si los prompts omiten el esquema porque se envía como response_format
+     */
+    public boolean isStructuredOutput() {
+        return structuredOutput;
+    }
+
+    private static String load(String path) {
+        try {
+            return new String(new ClassPathResource(path).getContentAsByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cargar la plantilla " + path, e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.tripmind.ai.prompt;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.tripmind.ai.dto.ItineraryResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Esquema JSON del itinerario para el modo de salida estructurada (response_format json_schema).
+ * Se genera al arrancar a partir de las propiedades que Jackson ve en los DTOs, de modo que sigue
+ * a las clases sin mantener un esquema a mano. Los datos que ya envía el usuario no se piden al modelo.
+ */
+@Component
+public class ItinerarySchema {
+
+    private static final Set<String> REQUEST_FIELDS =
+        Set.of("destination", "startDate", "endDate", "travelers", "budget", "interests");
+    private static final Set<String> EXTRAS_FIELDS =
+        Set.of("accommodation", "totalEstimatedCost", "currency", "travelTips");
+
+    // Formats the compact prompt schema used to spell out inline
+    private static final Map<String, String> FORMATS = Map.of(
+        "DayItinerary.date", "YYYY-MM-DD",
+        "Activity.time", "HH:MM",
+        "Restaurant.priceRange", "$, $$ or $$$",
+        "Restaurant.timeSlot", "Breakfast, Lunch or Dinner",
+        "Accommodation.checkIn", "HH:MM",
+        "Accommodation.checkOut", "HH:MM"
+    );
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Object> fullFormat;
+    private final Map<String, Object> daysOnlyFormat;
+
+    public ItinerarySchema(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        Set<String> daysOnly = new HashSet<>(REQUEST_FIELDS);
+        daysOnly.addAll(EXTRAS_FIELDS);
+        this.fullFormat = responseFormat("itinerary", schema(REQUEST_FIELDS));
+        this.daysOnlyFormat = responseFormat("itinerary_days", schema(daysOnly));
+    }
+
+    /**
+     * Valor de response_format para un prompt
+     * @param includesExtras Si se piden también el alojamiento, el coste total y los consejos
+     * @return Objeto json_schema en modo estricto
+     */
+    public Map<String, Object> responseFormat(boolean includesExtras) {
+        return includesExtras ? fullFormat : daysOnlyFormat;
+    }
+
+    private static Map<String, Object> responseFormat(String name, Map<String, Object> schema) {
+        return Map.of(
+            "type", "json_schema",
+            "json_schema", Map.of("name", name, "strict", true, "schema", schema)
+        );
+    }
+
+    private Map<String, Object> schema(Set<String> excluded) {
+        Map<String, Object> defs = new LinkedHashMap<>();
+        Map<String, Object> root = objectSchema(ItineraryResponse.class, excluded, defs);
+        root.put("$defs", defs);
+        return Collections.unmodifiableMap(root);
+    }
+
+    /**
+     * Esquema de un DTO: todas sus propiedades son obligatorias y no se admiten otras,
+     * como exige el modo estricto. El orden es el de declaración, así "days" llega antes que el alojamiento.
+     */
+    private Map<String, Object> objectSchema(Class<?> type, Set<String> excluded, Map<String, Object> defs) {
+        BeanDescription description = objectMapper.getSerializationConfig()
+            .introspect(objectMapper.constructType(type));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (excluded.contains(property.getName())) {
+                continue;
+            }
+            Map<String, Object> propertySchema = typeSchema(property.getPrimaryType(), defs);
+            String format = FORMATS.get(type.getSimpleName() + "." + property.getName());
+            if (format != null) {
+                propertySchema.put("description", format);
+            }
+            properties.put(property.getName(), propertySchema);
+        }
+
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.copyOf(properties.keySet()));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    private Map<String, Object> typeSchema(JavaType type, Map<String, Object> defs) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        Class<?> raw = type.getRawClass();
+
+        if (type.isCollectionLikeType() || type.isArrayType()) {
+            schema.put("type", "array");
+            schema.put("items", typeSchema(type.getContentType(), defs));
+        } else if (raw == String.class || raw == Character.class || raw == char.class) {
+            schema.put("type", "string");
+        } else if (raw.isEnum()) {
+            schema.put("type", "string");
+            schema.put("enum", Arrays.stream(raw.getEnumConstants()).map(String::valueOf).toList());
+        } else if (raw == int.class || raw == Integer.class || raw == long.class || raw == Long.class
+                || raw == short.class || raw == Short.class) {
+            schema.put("type", "integer");
+        } else if (raw.isPrimitive() && raw != boolean.class || Number.class.isAssignableFrom(raw)) {
+            schema.put("type", "number");
+        } else if (raw == boolean.class || raw == Boolean.class) {
+            schema.put("type", "boolean");
+        } else {
+            // Nested DTOs are defined once and referenced, so each class appears a single time
+            String name = raw.getSimpleName();
+            if (!defs.containsKey(name)) {
+                defs.put(name, Map.of());
+                defs.put(name, objectSchema(raw, Set.of(), defs));
+            }
+            schema.put("$ref", "#/$defs/" + name);
+        }
+        return schema;
+    }
+}
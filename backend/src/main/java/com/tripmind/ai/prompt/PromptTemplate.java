@@ -0,0 +1,88 @@
+package com.tripmind.ai.prompt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla de prompt precompilada. Los marcadores {{nombre}} se resuelven una sola vez al
+ * compilar, de modo que renderizar solo concatena fragmentos en un StringBuilder.
+ */
+public final class PromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compila una plantilla
+     * @param source Texto con marcadores {{nombre}}
+     * @return Plantilla lista para renderizar
+     */
+    public static PromptTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Marcador sin cerrar en la posición " + open);
+            }
+            literals.add(source.substring(position, open));
+            names.add(source.substring(open + OPEN.length(), close).trim());
+            position = close + CLOSE.length();
+        }
+        return new PromptTemplate(literals.toArray(String[]::new), names.toArray(String[]::new));
+    }
+
+    /**
+     * Renderiza la plantilla
+     * @param values Valores de los marcadores
+     * @return Texto resultante
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + names.length * 16);
+        appendTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Renderiza la plantilla al final de un StringBuilder existente
+     */
+    public void appendTo(StringBuilder out, Map<String, ?> values) {
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(names[i]);
+            if (value == null && !values.containsKey(names[i])) {
+                throw new IllegalArgumentException("Falta el valor del marcador: " + names[i]);
+            }
+            out.append(value);
+        }
+        out.append(literals[names.length]);
+    }
+
+    /**
+     * Plantilla sin marcadores: su texto es constante
+     */
+    public boolean isStatic() {
+        return names.length == 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.tripmind.ai.provider;
+
+/**
+ * Se lanza cuando el circuito del proveedor de IA está abierto y la llamada no se intenta
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.tripmind.ai.provider;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Proveedor de modelos con API /chat/completions. OpenRouterService construye el cuerpo de la
+ * petición y parsea la respuesta; el proveedor solo decide a dónde va y qué campos acepta.
+ */
+public interface LlmProvider {
+
+    /**
+     * Nombre con el que se configura (openrouter, openai, deepseek, local)
+     */
+    String getName();
+
+    /**
+     * Modelo que se pide cuando la llamada no fija otro
+     */
+    String getModel();
+
+    /**
+     * Si admite response_format con json_schema (modo de salida estructurada)
+     */
+    boolean supportsStructuredOutput();
+
+    /**
+     * Llamada sin streaming
+     * @param body Cuerpo de /chat/completions
+     * @return Cuerpo de la respuesta, tal como llega
+     */
+    Flux<DataBuffer> complete(Map<String, Object> body);
+
+    /**
+     * Llamada con stream: true
+     * @param body Cuerpo de /chat/completions
+     * @return Eventos SSE de la respuesta
+     */
+    Flux<ServerSentEvent<String>> stream(Map<String, Object> body);
+
+    /**
+     * Abre conexiones por adelantado; los errores se ignoran
+     * @param path Ruta ligera del proveedor (por ejemplo /models)
+     */
+    Mono<Void> warmUp(String path);
+}
@@ -0,0 +1,270 @@
+package com.tripmind.ai.provider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reparte las llamadas al modelo entre los proveedores configurados. Por cada proveedor mantiene
+ * una media móvil exponencial (EWMA) de la latencia de las llamadas correctas y de la tasa de error,
+ * y envía cada llamada al de menor coste: latencia por llamadas en curso, penalizada por los errores.
+ * Los proveedores por encima de la tasa de error máxima solo reciben la fracción de exploración,
+ * que también mantiene al día las medias de los que no son los más rápidos.
+ * Con el enrutado desactivado todas las llamadas van al proveedor preferido.
+ * Cada proveedor tiene su propio circuit breaker: los que tienen el circuito abierto no reciben
+ * llamadas (sin enrutado, las del preferido pasan al siguiente disponible). Sin ningún proveedor
+ * habilitado o disponible cada llamada falla, y la generación recurre al itinerario mock.
+ */
+public class LlmProviderRouter {
+
+    private final Map<String, ProviderState> providers = new LinkedHashMap<>();
+    private final ProviderState preferred;
+    private final boolean routingEnabled;
+    private final double smoothing;
+    private final double maxErrorRate;
+    private final double exploreRate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param providers Proveedores habilitados
+     * @param preferredName Proveedor preferido (app.ai.provider)
+     * @param routingEnabled Si se elige proveedor por latencia y errores
+     * @param smoothing Peso de cada muestra nueva en las medias (0-1)
+     * @param maxErrorRate Tasa de error a partir de la cual un proveedor deja de recibir tráfico normal
+     * @param exploreRate Fracción de llamadas enviadas a un proveedor al azar
+     * @param circuitBreaker Umbrales del circuito de cada proveedor
+     */
+    public LlmProviderRouter(List<LlmProvider> providers, String preferredName, boolean routingEnabled,
+                             double smoothing, double maxErrorRate, double exploreRate,
+                             ProviderCircuitBreaker.Settings circuitBreaker, MeterRegistry meterRegistry) {
+        this.routingEnabled = routingEnabled;
+        this.smoothing = smoothing;
+        this.maxErrorRate = maxErrorRate;
+        this.exploreRate = exploreRate;
+        this.meterRegistry = meterRegistry;
+
+        for (LlmProvider provider : providers) {
+            ProviderState state = new ProviderState(provider,
+                new ProviderCircuitBreaker(provider.getName(), circuitBreaker, meterRegistry));
+            this.providers.put(provider.getName(), state);
+            Gauge.builder("tripmind.llm.provider.latency", state, ProviderState::latencyMillis)
+                .description("Latencia media (EWMA) de las llamadas correctas al proveedor (ms)")
+                .tag("provider", provider.getName())
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+            Gauge.builder("tripmind.llm.provider.error-rate", state, ProviderState::errorRate)
+                .description("Tasa de error media (EWMA) del proveedor")
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+            Gauge.builder("tripmind.llm.provider.in-flight", state, s -> s.inFlight.get())
+                .description("Llamadas en curso al proveedor")
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+        }
+
+        ProviderState preferredState = this.providers.get(preferredName);
+        if (preferredState == null && !routingEnabled && !providers.isEmpty()) {
+            throw new IllegalStateException("El proveedor de IA '" + preferredName + "' no está habilitado");
+        }
+        this.preferred = preferredState != null || providers.isEmpty()
+            ? preferredState
+            : this.providers.values().iterator().next();
+    }
+
+    /**
+     * Ejecuta una llamada en el proveedor elegido y registra su latencia y resultado
+     * @param pinned Proveedor fijo para esta llamada, o null para elegirlo
+     * @param call Llamada a realizar con el proveedor elegido
+     */
+    public <T> Mono<T> execute(String pinned, Function<LlmProvider, Mono<T>> call) {
+        return Mono.defer(() -> {
+            ProviderState state = select(pinned);
+            // A call refused by the circuit never started, so it does not count in the averages
+            return state.breaker.protect(Mono.defer(() -> {
+                long start = System.nanoTime();
+                state.inFlight.incrementAndGet();
+                return call.apply(state.provider)
+                    .doOnSuccess(value -> record(state, System.nanoTime() - start, true))
+                    .doOnError(e -> record(state, System.nanoTime() - start, false))
+                    .doFinally(signal -> state.inFlight.decrementAndGet());
+            }));
+        });
+    }
+
+    /**
+     * Versión en streaming de {@link #execute(String, Function)}: la latencia es la del flujo completo
+     */
+    public <T> Flux<T> executeStream(String pinned, Function<LlmProvider, Flux<T>> call) {
+        return Flux.defer(() -> {
+            ProviderState state = select(pinned);
+            return state.breaker.protect(Flux.defer(() -> {
+                long start = System.nanoTime();
+                state.inFlight.incrementAndGet();
+                return call.apply(state.provider)
+                    .doOnComplete(() -> record(state, System.nanoTime() - start, true))
+                    .doOnError(e -> record(state, System.nanoTime() - start, false))
+                    .doFinally(signal -> state.inFlight.decrementAndGet());
+            }));
+        });
+    }
+
+    /**
+     * Indica si todos los proveedores habilitados tienen el circuito abierto, de modo que
+     * cualquier llamada se rechazaría sin intentarla
+     */
+    public boolean allCircuitsOpen() {
+        return !providers.isEmpty() && providers.values().stream().noneMatch(state -> state.breaker.permitsCalls());
+    }
+
+    /**
+     * Proveedor preferido (app.ai.provider), o null si no hay ninguno habilitado
+     */
+    public LlmProvider getPreferred() {
+        return preferred == null ? null : preferred.provider;
+    }
+
+    /**
+     * Proveedores habilitados, en orden de configuración
+     */
+    public List<LlmProvider> getProviders() {
+        List<LlmProvider> result = new ArrayList<>(providers.size());
+        providers.values().forEach(state -> result.add(state.provider));
+        return result;
+    }
+
+    private ProviderState select(String pinned) {
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("No hay ningún proveedor de IA habilitado");
+        }
+        if (pinned != null && providers.containsKey(pinned)) {
+            // A pinned call (the hedge on a second provider) has no other provider to go to
+            ProviderState state = providers.get(pinned);
+            if (!state.breaker.permitsCalls()) {
+                throw new CircuitOpenException("Circuit is open for AI provider " + pinned);
+            }
+            return decide(state, "pinned");
+        }
+
+        List<ProviderState> candidates = new ArrayList<>(providers.size());
+        for (ProviderState state : providers.values()) {
+            if (state.breaker.permitsCalls()) {
+                candidates.add(state);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new CircuitOpenException("Circuit is open for every AI provider");
+        }
+        if (!routingEnabled || providers.size() == 1) {
+            return candidates.contains(preferred) ? decide(preferred, "preferred") : decide(candidates.get(0), "failover");
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < exploreRate) {
+            return decide(candidates.get(random.nextInt(candidates.size())), "explore");
+        }
+
+        ProviderState best = null;
+        ProviderState unmeasured = null;
+        double bestCost = Double.MAX_VALUE;
+        for (ProviderState state : candidates) {
+            if (state.errorRate > maxErrorRate) {
+                continue;
+            }
+            if (!state.latencyKnown) {
+                if (unmeasured == null || state.inFlight.get() < unmeasured.inFlight.get()) {
+                    unmeasured = state;
+                }
+                continue;
+            }
+            double cost = state.cost();
+            if (cost < bestCost) {
+                best = state;
+                bestCost = cost;
+            }
+        }
+        // A provider without a successful call gets one at a time until its latency is known
+        if (unmeasured != null && (best == null || unmeasured.inFlight.get() == 0)) {
+            return decide(unmeasured, "unsampled");
+        }
+        if (best != null) {
+            return decide(best, "fastest");
+        }
+
+        // Every provider is failing: the least broken one still gets the call
+        ProviderState leastFailing = candidates.get(0);
+        for (ProviderState state : candidates) {
+            if (state.errorRate < leastFailing.errorRate) {
+                leastFailing = state;
+            }
+        }
+        return decide(leastFailing, "degraded");
+    }
+
+    private ProviderState decide(ProviderState state, String reason) {
+        Counter.builder("tripmind.llm.router.decisions")
+            .description("Llamadas enviadas a cada proveedor y motivo de la elección")
+            .tag("provider", state.provider.getName())
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+        return state;
+    }
+
+    private void record(ProviderState state, long nanos, boolean success) {
+        state.record(nanos, success, smoothing);
+        Counter.builder("tripmind.llm.provider.calls")
+            .description("Llamadas a cada proveedor por resultado")
+            .tag("provider", state.provider.getName())
+            .tag("outcome", success ? "success" : "error")
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static final class ProviderState {
+
+        private final LlmProvider provider;
+        private final ProviderCircuitBreaker breaker;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean latencyKnown;
+        private volatile double latencyNanos;
+        private volatile double errorRate;
+
+        ProviderState(LlmProvider provider, ProviderCircuitBreaker breaker) {
+            this.provider = provider;
+            this.breaker = breaker;
+        }
+
+        synchronized void record(long nanos, boolean success, double smoothing) {
+            if (success && !latencyKnown) {
+                latencyNanos = nanos;
+                latencyKnown = true;
+            } else if (success || (latencyKnown && nanos > latencyNanos)) {
+                // Fast failures say nothing about speed, but a slow one (a timeout) does
+                latencyNanos += smoothing * (nanos - latencyNanos);
+            }
+            errorRate += smoothing * ((success ? 0.0 : 1.0) - errorRate);
+        }
+
+        double cost() {
+            return latencyNanos * (inFlight.get() + 1) / Math.max(0.05, 1.0 - errorRate);
+        }
+
+        double latencyMillis() {
+            return latencyNanos / 1e6;
+        }
+
+        double errorRate() {
+            return errorRate;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.tripmind.ai.provider;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proveedor con API compatible con la de OpenAI: OpenRouter, OpenAI, DeepSeek o un servidor
+ * local (Ollama, vLLM, LM Studio). Solo OpenRouter entiende sus extensiones del cuerpo
+ * (provider, reasoning); al resto se les quitan para que no rechacen la petición.
+ */
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+        new ParameterizedTypeReference<>() {};
+    private static final List<String> OPENROUTER_EXTENSIONS = List.of("provider", "reasoning");
+
+    private final String name;
+    private final String model;
+    private final WebClient webClient;
+    private final boolean structuredOutput;
+    private final boolean openRouterExtensions;
+
+    /**
+     * @param name Nombre del proveedor
+     * @param model Modelo por defecto
+     * @param webClient Cliente con la URL base y la autenticación del proveedor
+     * @param structuredOutput Si admite response_format con json_schema
+     * @param openRouterExtensions Si acepta los campos propios de OpenRouter
+     */
+    public OpenAiCompatibleProvider(String name, String model, WebClient webClient,
+                                    boolean structuredOutput, boolean openRouterExtensions) {
+        this.name = name;
+        this.model = model;
+        this.webClient = webClient;
+        this.structuredOutput = structuredOutput;
+        this.openRouterExtensions = openRouterExtensions;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean supportsStructuredOutput() {
+        return structuredOutput;
+    }
+
+    @Override
+    public Flux<DataBuffer> complete(Map<String, Object> body) {
+        return webClient.post()
+            .uri("/chat/completions")
+            .bodyValue(adapt(body))
+            .retrieve()
+            .bodyToFlux(DataBuffer.class);
+    }
+
+    @Override
+    public Flux<ServerSentEvent<String>> stream(Map<String, Object> body) {
+        return webClient.post()
+            .uri("/chat/completions")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(adapt(body))
+            .retrieve()
+            .bodyToFlux(SSE_TYPE);
+    }
+
+    @Override
+    public Mono<Void> warmUp(String path) {
+        return webClient.head()
+            .uri(path)
+            .retrieve()
+            .toBodilessEntity()
+            .onErrorResume(e -> Mono.empty())
+            .then();
+    }
+
+    private Map<String, Object> adapt(Map<String, Object> body) {
+        if (openRouterExtensions) {
+            return body;
+        }
+        Map<String, Object> adapted = new LinkedHashMap<>(body);
+        OPENROUTER_EXTENSIONS.forEach(adapted::remove);
+        return adapted;
+    }
+}
@@ -0,0 +1,200 @@
+package com.tripmind.ai.provider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker de un proveedor de IA; LlmProviderRouter mantiene uno por proveedor y no envía
+ * llamadas a los que tienen el circuito abierto.
+ * CLOSED: registra el resultado de las últimas llamadas y abre el circuito si la tasa de fallos
+ * supera el umbral. OPEN: rechaza al instante hasta que pasa el tiempo de espera.
+ * HALF_OPEN: deja pasar unas pocas llamadas de prueba; si todas van bien se cierra, si una falla se reabre.
+ */
+public class ProviderCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String providerName;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final MeterRegistry meterRegistry;
+
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long epoch;
+    private long openedAt;
+    private int probesStarted;
+    private int probeSuccesses;
+
+    /**
+     * @param providerName Proveedor protegido
+     * @param settings Umbrales del circuito (app.ai.circuit-breaker)
+     */
+    public ProviderCircuitBreaker(String providerName, Settings settings, MeterRegistry meterRegistry) {
+        this.providerName = providerName;
+        this.window = new boolean[settings.windowSize()];
+        this.minimumCalls = Math.min(settings.minimumCalls(), settings.windowSize());
+        this.failureRateThreshold = settings.failureRateThreshold();
+        this.openDurationNanos = settings.openDuration().toNanos();
+        this.halfOpenProbes = settings.halfOpenProbes();
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("tripmind.llm.provider.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("Estado del circuito hacia el proveedor (0=closed, 1=open, 2=half_open)")
+            .tag("provider", providerName)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Protege una llamada: falla al instante con CircuitOpenException si el circuito no la permite
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            long permit = tryAcquire();
+            if (permit < 0) {
+                return Mono.error(new CircuitOpenException("Circuit is open for AI provider " + providerName));
+            }
+            return call
+                .doOnSuccess(value -> onResult(permit, true))
+                .doOnError(e -> onResult(permit, false))
+                .doOnCancel(() -> onCancel(permit));
+        });
+    }
+
+    /**
+     * Protege una llamada en streaming: cuenta como éxito cuando el flujo termina sin error
+     */
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            long permit = tryAcquire();
+            if (permit < 0) {
+                return Flux.error(new CircuitOpenException("Circuit is open for AI provider " + providerName));
+            }
+            return call
+                .doOnComplete(() -> onResult(permit, true))
+                .doOnError(e -> onResult(permit, false))
+                .doOnCancel(() -> onCancel(permit));
+        });
+    }
+
+    /**
+     * Indica si ahora se concedería un permiso, sin reservarlo
+     */
+    public synchronized boolean permitsCalls() {
+        return switch (getState()) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            // An expired OPEN state has not handed out any probe yet
+            case HALF_OPEN -> state == State.OPEN || probesStarted < halfOpenProbes;
+        };
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Época del estado en que se concedió el permiso, o -1 si la llamada no está permitida
+     */
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return -1;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                return -1;
+            }
+            probesStarted++;
+        }
+        return epoch;
+    }
+
+    private synchronized void onResult(long permit, boolean success) {
+        // Results of calls started under a previous state must not affect the current one
+        if (permit != epoch) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (state == State.CLOSED) {
+            if (windowCount == window.length && !window[windowNext]) {
+                windowFailures--;
+            }
+            window[windowNext] = success;
+            if (!success) {
+                windowFailures++;
+            }
+            windowNext = (windowNext + 1) % window.length;
+            windowCount = Math.min(windowCount + 1, window.length);
+
+            if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private synchronized void onCancel(long permit) {
+        if (permit == epoch && state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    private void transitionTo(State next) {
+        Counter.builder("tripmind.llm.provider.circuit.transitions")
+            .description("Transiciones de estado del circuito hacia cada proveedor")
+            .tag("provider", providerName)
+            .tag("from", state.name().toLowerCase())
+            .tag("to", next.name().toLowerCase())
+            .register(meterRegistry)
+            .increment();
+
+        state = next;
+        epoch++;
+        probesStarted = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            windowNext = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /**
+     * Umbrales del circuito, comunes a todos los proveedores
+     * @param windowSize Llamadas recientes que se tienen en cuenta
+     * @param minimumCalls Llamadas necesarias antes de poder abrir el circuito
+     * @param failureRateThreshold Tasa de fallos que abre el circuito (0-1)
+     * @param openDuration Tiempo que el circuito rechaza llamadas antes de probar de nuevo
+     * @param halfOpenProbes Llamadas de prueba que deben ir bien para cerrarlo
+     */
+    public record Settings(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                           int halfOpenProbes) {}
+}
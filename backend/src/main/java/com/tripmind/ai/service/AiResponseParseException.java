@@ -0,0 +1,15 @@
+package com.tripmind.ai.service;
+
+/**
+ * Se lanza cuando la respuesta del modelo no se puede convertir en un itinerario
+ */
+public class AiResponseParseException extends RuntimeException {
+
+    public AiResponseParseException(String message) {
+        super(message);
+    }
+
+    public AiResponseParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
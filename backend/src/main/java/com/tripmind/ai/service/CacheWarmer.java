@@ -0,0 +1,146 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.cache.ItineraryCache;
+import com.tripmind.ai.cache.PopularityTracker;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-genera en horas valle los itinerarios de las combinaciones más pedidas que no están en caché,
+ * como trabajos PREFETCH: esperan detrás del tráfico interactivo y tienen su propio máximo de
+ * ejecuciones, así que nunca le quitan capacidad. Lo pre-generado, y lo popular que ya estaba en
+ * caché, se guarda con un tiempo de vida propio para que llegue a las horas punta.
+ */
+@Service
+public class CacheWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final PopularityTracker popularityTracker;
+    private final ItineraryCache itineraryCache;
+    private final ItineraryJobService itineraryJobService;
+    private final boolean enabled;
+    private final List<LocalTime[]> windows;
+    private final Clock clock;
+    private final int topN;
+    private final double minScore;
+    private final Duration warmedTtl;
+
+    private final Counter submitted;
+    private final Counter skippedCached;
+    private final Counter skippedQueueFull;
+
+    public CacheWarmer(PopularityTracker popularityTracker,
+                       ItineraryCache itineraryCache,
+                       ItineraryJobService itineraryJobService,
+                       @Value("${app.warmer.enabled:false}") boolean enabled,
+                       @Value("${app.warmer.windows:02:00-06:00}") List<String> windows,
+                       @Value("${app.warmer.zone:UTC}") String zone,
+                       @Value("${app.warmer.top:50}") int topN,
+                       @Value("${app.warmer.min-requests:3}") double minScore,
+                       @Value("${app.warmer.ttl:24h}") Duration warmedTtl,
+                       @Value("${app.cache.itinerary.ttl:6h}") Duration cacheTtl,
+                       MeterRegistry meterRegistry) {
+        this.popularityTracker = popularityTracker;
+        this.itineraryCache = itineraryCache;
+        this.itineraryJobService = itineraryJobService;
+        this.enabled = enabled;
+        this.windows = parseWindows(windows);
+        this.clock = Clock.system(ZoneId.of(zone));
+        this.topN = topN;
+        this.minScore = minScore;
+        this.warmedTtl = warmedTtl;
+        // With the regular TTL an entry warmed at 02:00 would already be gone by the morning peak
+        if (enabled && warmedTtl.compareTo(cacheTtl) < 0) {
+            throw new IllegalArgumentException("app.warmer.ttl (" + warmedTtl
+                + ") must not be shorter than app.cache.itinerary.ttl (" + cacheTtl + ")");
+        }
+
+        this.submitted = warmerCounter(meterRegistry, "submitted");
+        this.skippedCached = warmerCounter(meterRegistry, "cached");
+        this.skippedQueueFull = warmerCounter(meterRegistry, "queue_full");
+    }
+
+    /**
+     * Cada intervalo, dentro de una ventana de horas valle, encola las combinaciones populares
+     * que falten en caché. Las que ya están solo renuevan su tiempo de vida, así que repetir la pasada es barato.
+     */
+    @Scheduled(initialDelayString = "${app.warmer.interval:PT10M}", fixedDelayString = "${app.warmer.interval:PT10M}")
+    public void warm() {
+        if (!enabled || !inOffPeakWindow(LocalTime.now(clock))) {
+            return;
+        }
+        // The previous pass is still being worked through
+        if (itineraryJobService.queued(JobPriority.PREFETCH) > 0) {
+            return;
+        }
+
+        int queued = 0;
+        for (ItineraryRequest request : popularityTracker.top(topN, minScore)) {
+            // Popular entries cached before the window would otherwise expire on the regular TTL
+            if (itineraryCache.retain(request, warmedTtl)) {
+                skippedCached.increment();
+                continue;
+            }
+            try {
+                itineraryJobService.submit(request, JobPriority.PREFETCH).getCompletion()
+                    .thenAccept(job -> itineraryCache.retain(job.getRequest(), warmedTtl));
+                submitted.increment();
+                queued++;
+            } catch (JobQueueFullException e) {
+                skippedQueueFull.increment();
+                break;
+            }
+        }
+        if (queued > 0) {
+            log.info("Cache warmer queued {} popular itineraries", queued);
+        }
+    }
+
+    private boolean inOffPeakWindow(LocalTime now) {
+        for (LocalTime[] window : windows) {
+            LocalTime from = window[0];
+            LocalTime to = window[1];
+            // A window such as 22:00-04:00 wraps around midnight
+            boolean inside = from.isBefore(to)
+                ? !now.isBefore(from) && now.isBefore(to)
+                : !now.isBefore(from) || now.isBefore(to);
+            if (inside) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<LocalTime[]> parseWindows(List<String> windows) {
+        List<LocalTime[]> parsed = new ArrayList<>();
+        for (String window : windows) {
+            String[] bounds = window.trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Invalid off-peak window (expected HH:mm-HH:mm): " + window);
+            }
+            parsed.add(new LocalTime[] {LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim())});
+        }
+        return parsed;
+    }
+
+    private static Counter warmerCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tripmind.warmer.requests")
+            .description("Combinaciones populares encoladas para pre-generar o saltadas")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,120 @@
+package com.tripmind.ai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita el ritmo de generaciones por cliente (API key o IP) con un token bucket por cliente,
+ * para que un solo cliente no consuma toda la capacidad hacia OpenRouter.
+ * Como mucho se siguen max-clients clientes; mientras la tabla está llena, los clientes nuevos
+ * comparten un único bucket hasta que la limpieza periódica retira los inactivos.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private final boolean enabled;
+    private final double tokensPerSecond;
+    private final int burst;
+    private final int maxClients;
+    private final long idleNanos;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final TokenBucket overflow;
+
+    private final Counter allowed;
+    private final Counter rejected;
+    private final Counter overflowed;
+
+    public ClientRateLimiter(@Value("${app.admission.rate-limit.enabled:false}") boolean enabled,
+                             @Value("${app.admission.rate-limit.requests-per-second:0.5}") double tokensPerSecond,
+                             @Value("${app.admission.rate-limit.burst:10}") int burst,
+                             @Value("${app.admission.rate-limit.max-clients:100000}") int maxClients,
+                             @Value("${app.admission.rate-limit.idle-ttl:10m}") Duration idleTtl,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.tokensPerSecond = tokensPerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.idleNanos = idleTtl.toNanos();
+        this.overflow = new TokenBucket(tokensPerSecond, burst, System.nanoTime());
+
+        this.allowed = requestCounter(meterRegistry, "allowed");
+        this.rejected = requestCounter(meterRegistry, "rejected");
+        this.overflowed = Counter.builder("tripmind.ratelimit.overflow")
+            .description("Peticiones de clientes nuevos limitadas con el bucket compartido por estar la tabla llena")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.ratelimit.clients", tracked, AtomicInteger::get)
+            .description("Clientes con un bucket de peticiones activo")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Consume un token del cliente
+     * @param clientId API key o IP del cliente
+     * @return 0 si la petición se admite, o el tiempo hasta que el cliente vuelva a tener un token
+     */
+    public Duration tryAcquire(String clientId) {
+        if (!enabled) {
+            return Duration.ZERO;
+        }
+        long now = System.nanoTime();
+        long waitNanos = bucketFor(clientId, now).tryAcquire(now);
+        if (waitNanos > 0) {
+            rejected.increment();
+            return Duration.ofNanos(waitNanos);
+        }
+        allowed.increment();
+        return Duration.ZERO;
+    }
+
+    /**
+     * Retira los buckets inactivos. Un bucket inactivo está lleno, así que descartarlo no cambia lo
+     * que se le permite al cliente
+     */
+    @Scheduled(initialDelayString = "${app.admission.rate-limit.sweep-interval:PT1M}",
+               fixedDelayString = "${app.admission.rate-limit.sweep-interval:PT1M}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.forEach((clientId, bucket) -> {
+            if (bucket.isIdle(now, idleNanos) && buckets.remove(clientId, bucket)) {
+                tracked.decrementAndGet();
+            }
+        });
+    }
+
+    private TokenBucket bucketFor(String clientId, long now) {
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        // Reserve the slot first so concurrent new clients can never push the table past the cap
+        if (tracked.incrementAndGet() > maxClients) {
+            tracked.decrementAndGet();
+            overflowed.increment();
+            return overflow;
+        }
+        TokenBucket created = new TokenBucket(tokensPerSecond, burst, now);
+        TokenBucket existing = buckets.putIfAbsent(clientId, created);
+        if (existing != null) {
+            tracked.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tripmind.ratelimit.requests")
+            .description("Peticiones de generación admitidas o rechazadas por el límite por cliente")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
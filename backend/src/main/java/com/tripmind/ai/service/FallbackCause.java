@@ -0,0 +1,58 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.provider.CircuitOpenException;
+import io.netty.handler.timeout.TimeoutException;
+import org.springframework.web.reactive.function.client.WebClientException;
+
+/**
+ * Motivo por el que una generación acaba sirviendo el itinerario mock, usado como
+ * etiqueta de las métricas de fallback
+ */
+public enum FallbackCause {
+    TIMEOUT("timeout"),
+    HTTP_ERROR("http_error"),
+    PARSE_ERROR("parse_error"),
+    CIRCUIT_OPEN("circuit_open"),
+    SHED("shed"),
+    OTHER("other");
+
+    private final String tag;
+
+    FallbackCause(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Clasifica un error recorriendo su cadena de causas: los timeouts tienen prioridad
+     * porque WebClient los envuelve en excepciones HTTP
+     * @param error Error de la generación
+     * @return Motivo del fallback
+     */
+    public static FallbackCause of(Throwable error) {
+        FallbackCause cause = OTHER;
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof java.util.concurrent.TimeoutException || current instanceof TimeoutException) {
+                return TIMEOUT;
+            }
+            if (cause == OTHER) {
+                if (current instanceof CircuitOpenException) {
+                    cause = CIRCUIT_OPEN;
+                } else if (current instanceof UpstreamLimitExceededException) {
+                    cause = SHED;
+                } else if (current instanceof AiResponseParseException) {
+                    cause = PARSE_ERROR;
+                } else if (current instanceof WebClientException) {
+                    cause = HTTP_ERROR;
+                }
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return cause;
+    }
+}
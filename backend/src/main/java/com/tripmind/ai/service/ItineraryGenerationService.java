@@ -0,0 +1,298 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.cache.ItineraryCache;
+import com.tripmind.ai.cache.ItineraryCacheKey;
+import com.tripmind.ai.cache.SerializedItinerary;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.BatchItineraryResult;
+import com.tripmind.ai.dto.ItineraryResponse;
+import com.tripmind.ai.dto.ItineraryStreamEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orquesta la generación de itinerarios: caché, llamada a OpenRouter y fallback al itinerario mock
+ */
+@Service
+public class ItineraryGenerationService {
+
+    private static final String SOURCE_AI = "ai";
+    private static final String SOURCE_FALLBACK = "fallback";
+
+    private final ItineraryCache itineraryCache;
+    private final OpenRouterService openRouterService;
+    private final ItineraryService itineraryService;
+    private final MeterRegistry meterRegistry;
+    private final int batchMaxItems;
+    private final int batchParallelism;
+    private final boolean rejectShed;
+
+    private final Counter aiGenerations;
+    private final Counter fallbackGenerations;
+
+    public ItineraryGenerationService(ItineraryCache itineraryCache,
+                                      OpenRouterService openRouterService,
+                                      ItineraryService itineraryService,
+                                      @Value("${app.batch.max-items:500}") int batchMaxItems,
+                                      @Value("${app.batch.max-parallel:8}") int batchParallelism,
+                                      @Value("${app.admission.shed-response:mock}") String shedResponse,
+                                      MeterRegistry meterRegistry) {
+        this.itineraryCache = itineraryCache;
+        this.openRouterService = openRouterService;
+        this.itineraryService = itineraryService;
+        this.batchMaxItems = batchMaxItems;
+        this.batchParallelism = batchParallelism;
+        this.rejectShed = "reject".equalsIgnoreCase(shedResponse);
+        this.meterRegistry = meterRegistry;
+
+        this.aiGenerations = generationCounter(meterRegistry, SOURCE_AI);
+        this.fallbackGenerations = generationCounter(meterRegistry, SOURCE_FALLBACK);
+        Gauge.builder("tripmind.itinerary.fallback.ratio", this, ItineraryGenerationService::fallbackRatio)
+            .description("Proporción de itinerarios servidos con el fallback mock")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Genera un itinerario sin bloquear: primero IA (cacheada y coalescida) y, si falla, mock
+     * @param request Datos del viaje
+     * @return Itinerario generado
+     */
+    public Mono<ItineraryResponse> generate(ItineraryRequest request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return itineraryCache.getAsync(request, () -> openRouterService.generateItineraryAsync(request))
+                .doOnNext(itinerary -> {
+                    aiGenerations.increment();
+                    recordRequest("reactive", SOURCE_AI, start);
+                })
+                .onErrorResume(e -> {
+                    if (rejectShed(e)) {
+                        return Mono.error(e);
+                    }
+                    return Mono.fromCallable(() -> {
+                        ItineraryResponse itinerary = fallback(request, e);
+                        recordRequest("reactive", SOURCE_FALLBACK, start);
+                        return itinerary;
+                    });
+                });
+        });
+    }
+
+    /**
+     * Busca el itinerario en caché ya serializado, para responder sin pasar por Jackson
+     * @param request Datos del viaje
+     * @return Itinerario serializado o null si no está en caché
+     */
+    public SerializedItinerary findSerialized(ItineraryRequest request) {
+        long start = System.nanoTime();
+        SerializedItinerary serialized = itineraryCache.peekSerialized(request);
+        if (serialized != null) {
+            aiGenerations.increment();
+            recordRequest("serialized", SOURCE_AI, start);
+        }
+        return serialized;
+    }
+
+    /**
+     * Genera un itinerario bloqueando el hilo actual: primero IA (cacheada y coalescida) y, si falla, mock
+     * @param request Datos del viaje
+     * @return Itinerario generado
+     */
+    public ItineraryResponse generateBlocking(ItineraryRequest request) {
+        long start = System.nanoTime();
+        ItineraryResponse itinerary;
+        try {
+            itinerary = itineraryCache.get(request, () -> openRouterService.generateItinerary(request));
+        } catch (Exception e) {
+            if (rejectShed(e)) {
+                throw e;
+            }
+            itinerary = fallback(request, e);
+            recordRequest("blocking", SOURCE_FALLBACK, start);
+            return itinerary;
+        }
+        aiGenerations.increment();
+        recordRequest("blocking", SOURCE_AI, start);
+        return itinerary;
+    }
+
+    /**
+     * Genera un itinerario en streaming. Si falla antes de emitir ningún día se sirve el mock
+     * completo; si ya se enviaron días, se emite un evento de error
+     * @param request Datos del viaje
+     * @return Eventos del itinerario (día a día, alojamiento y completo)
+     */
+    public Flux<ItineraryStreamEvent> stream(ItineraryRequest request) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            ItineraryResponse cached = itineraryCache.peek(request);
+            if (cached != null) {
+                aiGenerations.increment();
+                recordRequest("stream", SOURCE_AI, start);
+                return Flux.fromIterable(ItineraryStreamEvent.fromItinerary(cached));
+            }
+
+            AtomicInteger streamedDays = new AtomicInteger();
+            return openRouterService.streamItinerary(request)
+                .doOnNext(event -> {
+                    if (ItineraryStreamEvent.DAY.equals(event.getType())) {
+                        streamedDays.incrementAndGet();
+                    } else if (ItineraryStreamEvent.COMPLETE.equals(event.getType())) {
+                        itineraryCache.put(request, (ItineraryResponse) event.getData());
+                        aiGenerations.increment();
+                        recordRequest("stream", SOURCE_AI, start);
+                    }
+                })
+                .onErrorResume(e -> {
+                    // Fallback to mock data only if no AI day has been sent yet
+                    if (streamedDays.get() > 0) {
+                        fallbackCounter(FallbackCause.of(e), "error_event").increment();
+                        return Flux.just(new ItineraryStreamEvent(ItineraryStreamEvent.ERROR,
+                            "Error al generar itinerario: " + e.getMessage()));
+                    }
+                    return Flux.defer(() -> {
+                        ItineraryResponse itinerary = fallback(request, e);
+                        recordRequest("stream", SOURCE_FALLBACK, start);
+                        return Flux.fromIterable(ItineraryStreamEvent.fromItinerary(itinerary));
+                    });
+                });
+        });
+    }
+
+    /**
+     * Genera un lote de itinerarios. Las solicitudes equivalentes (misma clave de caché) se generan
+     * una sola vez, como mucho app.batch.max-parallel grupos a la vez, y cada elemento que falla
+     * recibe su propio itinerario mock sin afectar al resto del lote.
+     * @param requests Solicitudes del lote
+     * @return Resultados en el orden en que terminan, con la posición de cada solicitud
+     * @throws IllegalArgumentException si el lote supera app.batch.max-items
+     */
+    public Flux<BatchItineraryResult> generateBatch(List<ItineraryRequest> requests) {
+        if (requests.size() > batchMaxItems) {
+            throw new IllegalArgumentException("Batch exceeds " + batchMaxItems + " itineraries");
+        }
+
+        List<BatchItineraryResult> invalid = new ArrayList<>();
+        Map<ItineraryCacheKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                groups.computeIfAbsent(ItineraryCacheKey.from(requests.get(i)), key -> new ArrayList<>()).add(i);
+            } catch (RuntimeException e) {
+                invalid.add(new BatchItineraryResult(i, null, null, "Invalid request: " + e.getMessage()));
+            }
+        }
+
+        return Flux.concat(
+            Flux.fromIterable(invalid),
+            Flux.fromIterable(groups.values()).flatMap(indices -> generateGroup(requests, indices), batchParallelism)
+        );
+    }
+
+    /**
+     * Genera la primera solicitud del grupo; el resto son equivalentes y salen de la caché
+     * (adaptadas a sus fechas) o, si la IA falló, del mock
+     */
+    private Flux<BatchItineraryResult> generateGroup(List<ItineraryRequest> requests, List<Integer> indices) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            ItineraryRequest first = requests.get(indices.get(0));
+            return itineraryCache.getAsync(first, () -> openRouterService.generateItineraryAsync(first))
+                .map(itinerary -> {
+                    List<BatchItineraryResult> results = new ArrayList<>(indices.size());
+                    for (int index : indices) {
+                        ItineraryRequest request = requests.get(index);
+                        ItineraryResponse result = request == first ? itinerary : itineraryCache.peek(request);
+                        if (result == null) {
+                            // Evicted between the generation and this lookup
+                            results.add(batchFallback(index, request, new IllegalStateException("Cache entry evicted"), start));
+                            continue;
+                        }
+                        aiGenerations.increment();
+                        recordRequest("batch", SOURCE_AI, start);
+                        results.add(new BatchItineraryResult(index, SOURCE_AI, result, null));
+                    }
+                    return results;
+                })
+                .onErrorResume(e -> Mono.fromCallable(() -> {
+                    List<BatchItineraryResult> results = new ArrayList<>(indices.size());
+                    for (int index : indices) {
+                        results.add(batchFallback(index, requests.get(index), e, start));
+                    }
+                    return results;
+                }))
+                .flatMapMany(Flux::fromIterable);
+        });
+    }
+
+    private BatchItineraryResult batchFallback(int index, ItineraryRequest request, Throwable error, long startNanos) {
+        try {
+            ItineraryResponse itinerary = fallback(request, error);
+            recordRequest("batch", SOURCE_FALLBACK, startNanos);
+            return new BatchItineraryResult(index, SOURCE_FALLBACK, itinerary, null);
+        } catch (RuntimeException e) {
+            return new BatchItineraryResult(index, null, null, "Error al generar itinerario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Con app.admission.shed-response=reject, las llamadas descartadas por el límite de concurrencia
+     * no reciben el mock y el controlador responde 429
+     */
+    private boolean rejectShed(Throwable error) {
+        if (rejectShed && FallbackCause.of(error) == FallbackCause.SHED) {
+            fallbackCounter(FallbackCause.SHED, "rejected").increment();
+            return true;
+        }
+        return false;
+    }
+
+    private ItineraryResponse fallback(ItineraryRequest request, Throwable error) {
+        fallbackGenerations.increment();
+        fallbackCounter(FallbackCause.of(error), "mock").increment();
+        return itineraryService.generateMockItinerary(request);
+    }
+
+    private double fallbackRatio() {
+        double fallbacks = fallbackGenerations.count();
+        double total = fallbacks + aiGenerations.count();
+        return total == 0 ? 0.0 : fallbacks / total;
+    }
+
+    private void recordRequest(String mode, String source, long startNanos) {
+        Timer.builder("tripmind.itinerary.request")
+            .description("Tiempo total de generación de un itinerario, incluido el fallback")
+            .tag("mode", mode)
+            .tag("source", source)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter fallbackCounter(FallbackCause cause, String action) {
+        return Counter.builder("tripmind.itinerary.fallbacks")
+            .description("Generaciones de IA fallidas por motivo y acción tomada")
+            .tag("cause", cause.getTag())
+            .tag("action", action)
+            .register(meterRegistry);
+    }
+
+    private static Counter generationCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("tripmind.itinerary.generations")
+            .description("Itinerarios generados por origen")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+}
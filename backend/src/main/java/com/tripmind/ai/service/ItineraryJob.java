@@ -0,0 +1,81 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.ItineraryResponse;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Trabajo de generación de un itinerario: se crea en cola, lo ejecuta un worker y, al terminar,
+ * conserva el resultado durante el tiempo de retención
+ */
+public class ItineraryJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id;
+    private final ItineraryRequest request;
+    private final JobPriority priority;
+    private final Instant submittedAt;
+    private final CompletableFuture<ItineraryJob> completion = new CompletableFuture<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile ItineraryResponse itinerary;
+    private volatile String itineraryId;
+    private volatile String error;
+
+    ItineraryJob(String id, ItineraryRequest request, JobPriority priority) {
+        this.id = id;
+        this.request = request;
+        this.priority = priority;
+        this.submittedAt = Instant.now();
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void succeed(ItineraryResponse itinerary, String itineraryId) {
+        this.itinerary = itinerary;
+        this.itineraryId = itineraryId;
+        finish(Status.SUCCEEDED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status finalStatus) {
+        finishedAt = Instant.now();
+        status = finalStatus;
+        completion.complete(this);
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Se completa con el propio trabajo cuando termina, con éxito o con error
+     */
+    public CompletableFuture<ItineraryJob> getCompletion() {
+        return completion;
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public ItineraryRequest getRequest() { return request; }
+    public JobPriority getPriority() { return priority; }
+    public Status getStatus() { return status; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public ItineraryResponse getItinerary() { return itinerary; }
+    public String getItineraryId() { return itineraryId; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,283 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.cache.ItineraryStore;
+import com.tripmind.ai.cache.TtlLruCache;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.ItineraryResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Servicio para la generación asíncrona de itinerarios: los trabajos entran en una cola acotada
+ * con un carril por prioridad y un pool fijo de workers los ejecuta, siempre el interactivo primero.
+ * Los carriles de menor prioridad tienen además un máximo de trabajos en ejecución, para que
+ * el prefetch nunca ocupe los workers que necesita el tráfico interactivo.
+ * Los resultados se guardan en el ItineraryStore y el trabajo se conserva un tiempo tras terminar.
+ */
+@Service
+public class ItineraryJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ItineraryJobService.class);
+
+    private final ItineraryGenerationService itineraryGenerationService;
+    private final ItineraryStore itineraryStore;
+    private final int workerCount;
+    private final Duration jobTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<JobPriority, ArrayDeque<ItineraryJob>> lanes = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, Integer> capacities = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, Integer> maxRunning = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, Integer> runningByLane = new EnumMap<>(JobPriority.class);
+    private final Map<String, ItineraryJob> active = new ConcurrentHashMap<>();
+    private final TtlLruCache<String, ItineraryJob> finished;
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<JobPriority, Timer> waitTimers = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, Counter> rejected = new EnumMap<>(JobPriority.class);
+
+    private volatile boolean accepting;
+    private final List<Thread> workers = new ArrayList<>();
+
+    public ItineraryJobService(ItineraryGenerationService itineraryGenerationService,
+                               ItineraryStore itineraryStore,
+                               @Value("${app.jobs.workers:16}") int workerCount,
+                               @Value("${app.jobs.timeout:150s}") Duration jobTimeout,
+                               @Value("${app.jobs.queue.interactive:500}") int interactiveCapacity,
+                               @Value("${app.jobs.queue.background:1000}") int backgroundCapacity,
+                               @Value("${app.jobs.queue.prefetch:200}") int prefetchCapacity,
+                               @Value("${app.jobs.max-running.background:${app.jobs.workers:16}}") int backgroundMaxRunning,
+                               @Value("${app.jobs.max-running.prefetch:2}") int prefetchMaxRunning,
+                               @Value("${app.jobs.retention.max-size:10000}") int retentionMaxSize,
+                               @Value("${app.jobs.retention.ttl:15m}") Duration retentionTtl,
+                               MeterRegistry meterRegistry) {
+        this.itineraryGenerationService = itineraryGenerationService;
+        this.itineraryStore = itineraryStore;
+        this.workerCount = workerCount;
+        this.jobTimeout = jobTimeout;
+        this.finished = new TtlLruCache<>(retentionMaxSize, retentionTtl);
+        this.meterRegistry = meterRegistry;
+
+        capacities.put(JobPriority.INTERACTIVE, interactiveCapacity);
+        capacities.put(JobPriority.BACKGROUND, backgroundCapacity);
+        capacities.put(JobPriority.PREFETCH, prefetchCapacity);
+        maxRunning.put(JobPriority.INTERACTIVE, workerCount);
+        maxRunning.put(JobPriority.BACKGROUND, backgroundMaxRunning);
+        maxRunning.put(JobPriority.PREFETCH, prefetchMaxRunning);
+        for (JobPriority priority : JobPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            runningByLane.put(priority, 0);
+            waitTimers.put(priority, Timer.builder("tripmind.jobs.wait")
+                .description("Tiempo que un trabajo pasa en cola hasta que lo toma un worker")
+                .tag("priority", priority.getTag())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+            rejected.put(priority, Counter.builder("tripmind.jobs.rejected")
+                .description("Trabajos rechazados por carril lleno")
+                .tag("priority", priority.getTag())
+                .register(meterRegistry));
+            Gauge.builder("tripmind.jobs.queue", this, service -> service.queued(priority))
+                .description("Trabajos en cola por carril")
+                .tag("priority", priority.getTag())
+                .register(meterRegistry);
+        }
+        Gauge.builder("tripmind.jobs.running", running, AtomicInteger::get)
+            .description("Trabajos en ejecución")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.jobs.retained", finished, TtlLruCache::size)
+            .description("Trabajos terminados que se conservan para consultar su resultado")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        accepting = true;
+        // Workers block on the generation, which is cheap on virtual threads
+        Thread.Builder builder = Thread.ofVirtual().name("itinerary-job-", 0);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(builder.start(this::workLoop));
+        }
+    }
+
+    /**
+     * Al apagar se dejan de aceptar trabajos; los que siguen en cola se marcan como fallidos
+     */
+    @PreDestroy
+    void stop() {
+        accepting = false;
+        workers.forEach(Thread::interrupt);
+        lock.lock();
+        try {
+            for (ArrayDeque<ItineraryJob> lane : lanes.values()) {
+                for (ItineraryJob job : lane) {
+                    complete(job, null, "Service shutting down");
+                }
+                lane.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encola la generación de un itinerario
+     * @param request Datos del viaje
+     * @param priority Carril del trabajo
+     * @return Trabajo en cola
+     * @throws JobQueueFullException si el carril está lleno
+     */
+    public ItineraryJob submit(ItineraryRequest request, JobPriority priority) {
+        ItineraryJob job = new ItineraryJob("job_" + UUID.randomUUID(), request, priority);
+        lock.lock();
+        try {
+            ArrayDeque<ItineraryJob> lane = lanes.get(priority);
+            if (!accepting || lane.size() >= capacities.get(priority)) {
+                rejected.get(priority).increment();
+                throw new JobQueueFullException("Job queue is full for priority " + priority.getTag());
+            }
+            active.put(job.getId(), job);
+            lane.addLast(job);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return job;
+    }
+
+    /**
+     * Busca un trabajo en cola, en ejecución o terminado dentro del tiempo de retención
+     * @param id ID del trabajo
+     * @return Trabajo o null si no existe o ya expiró
+     */
+    public ItineraryJob find(String id) {
+        ItineraryJob job = active.get(id);
+        return job != null ? job : finished.get(id);
+    }
+
+    private void workLoop() {
+        while (accepting) {
+            ItineraryJob job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            run(job);
+        }
+    }
+
+    /**
+     * Espera al siguiente trabajo del carril más prioritario que tenga alguno y no haya
+     * alcanzado su máximo de trabajos en ejecución
+     */
+    private ItineraryJob take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                for (Map.Entry<JobPriority, ArrayDeque<ItineraryJob>> lane : lanes.entrySet()) {
+                    JobPriority priority = lane.getKey();
+                    if (runningByLane.get(priority) >= maxRunning.get(priority)) {
+                        continue;
+                    }
+                    ItineraryJob job = lane.getValue().pollFirst();
+                    if (job != null) {
+                        runningByLane.merge(priority, 1, Integer::sum);
+                        return job;
+                    }
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libera el hueco del carril; un worker puede estar esperando precisamente a ese hueco
+     */
+    private void release(JobPriority priority) {
+        lock.lock();
+        try {
+            runningByLane.merge(priority, -1, Integer::sum);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(ItineraryJob job) {
+        job.start();
+        running.incrementAndGet();
+        waitTimers.get(job.getPriority()).record(Duration.between(job.getSubmittedAt(), job.getStartedAt()));
+        long start = System.nanoTime();
+        String outcome = "succeeded";
+        try {
+            ItineraryResponse itinerary = itineraryGenerationService.generate(job.getRequest()).block(jobTimeout);
+            if (itinerary == null) {
+                throw new IllegalStateException("Generation returned no itinerary");
+            }
+            complete(job, itinerary, null);
+        } catch (RuntimeException e) {
+            outcome = "failed";
+            log.warn("Itinerary job {} failed: {}", job.getId(), e.getMessage());
+            complete(job, null, e.getMessage());
+        } finally {
+            running.decrementAndGet();
+            release(job.getPriority());
+            Timer.builder("tripmind.jobs.run")
+                .description("Duración de la ejecución de un trabajo de generación")
+                .tag("priority", job.getPriority().getTag())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void complete(ItineraryJob job, ItineraryResponse itinerary, String error) {
+        if (itinerary != null) {
+            job.succeed(itinerary, itineraryStore.put(itinerary).getId());
+        } else {
+            job.fail(error);
+        }
+        // Retained after it leaves the active map so a poll never misses it
+        finished.put(job.getId(), job);
+        active.remove(job.getId());
+    }
+
+    /**
+     * Trabajos en cola en un carril
+     * @param priority Carril
+     */
+    public int queued(JobPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
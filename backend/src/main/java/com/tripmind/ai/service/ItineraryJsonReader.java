@@ -0,0 +1,484 @@
+package com.tripmind.ai.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
+import com.tripmind.ai.dto.*;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector incremental de las respuestas del modelo basado en el JsonParser de Jackson.
+ * Recorre el sobre de OpenRouter token a token, salta el texto previo al JSON del itinerario
+ * y construye los DTOs directamente, sin Strings intermedios ni árboles JsonNode.
+ * Si el JSON del modelo está cortado, conserva todo lo que llegó completo (días, alojamiento).
+ */
+@Component
+public class ItineraryJsonReader {
+
+    private final JsonFactory jsonFactory;
+
+    public ItineraryJsonReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Lee una respuesta completa de /chat/completions
+     * @param envelope Cuerpo de la respuesta de OpenRouter
+     * @param request Datos del viaje
+     * @return Itinerario contenido en choices[0].message.content, motivo de fin y consumo de tokens
+     */
+    public ModelCompletion readCompletion(InputStream envelope, ItineraryRequest request) throws IOException {
+        return readCompletion(envelope, request, false);
+    }
+
+    /**
+     * Lee una respuesta completa de /chat/completions
+     * @param envelope Cuerpo de la respuesta de OpenRouter
+     * @param request Datos del viaje
+     * @param structured Si el contenido se generó con response_format: es JSON puro y se lee
+     *                   directamente, sin buscar el inicio del objeto entre el texto del modelo
+     * @return Itinerario contenido en choices[0].message.content, motivo de fin y consumo de tokens
+     */
+    public ModelCompletion readCompletion(InputStream envelope, ItineraryRequest request, boolean structured) throws IOException {
+        ParsedContent content = null;
+        String[] finishReason = new String[1];
+        TokenUsage usage = null;
+
+        try (JsonParser parser = jsonFactory.createParser(envelope)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("choices".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        content = readChoice(parser, request, structured, finishReason);
+                        skipRemaining(parser);
+                    }
+                } else if ("usage".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    usage = readUsage(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (content == null) {
+            throw new IOException("La respuesta no contiene choices[0].message.content");
+        }
+        return new ModelCompletion(content.itinerary(), finishReason[0], usage,
+            content.truncated(), content.accommodationIncluded());
+    }
+
+    /**
+     * Lee un fragmento de streaming: texto de choices[0].delta.content y, en el último, el consumo de tokens
+     * @param chunk Datos de un evento SSE de OpenRouter
+     * @return Fragmento leído
+     */
+    public StreamChunk readChunk(String chunk) throws IOException {
+        String content = null;
+        TokenUsage usage = null;
+
+        try (JsonParser parser = jsonFactory.createParser(chunk)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("choices".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        content = readDelta(parser);
+                        skipRemaining(parser);
+                    }
+                } else if ("usage".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    usage = readUsage(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new StreamChunk(content, usage);
+    }
+
+    /**
+     * Lee el itinerario a partir del contenido completo generado por el modelo
+     * @param content Texto del modelo (puede incluir razonamiento o markdown antes del JSON)
+     * @param request Datos del viaje
+     * @return Itinerario generado
+     */
+    public ItineraryResponse readContent(String content, ItineraryRequest request) throws IOException {
+        ModelCompletion completion = readPartialContent(content, request);
+        if (completion.truncated()) {
+            throw new IOException("El JSON del modelo está incompleto");
+        }
+        return completion.itinerary();
+    }
+
+    /**
+     * Lee el itinerario a partir del contenido generado por el modelo, aunque el JSON esté cortado
+     * @param content Texto del modelo (puede incluir razonamiento o markdown antes del JSON)
+     * @param request Datos del viaje
+     * @return Itinerario con los días completos y si el contenido estaba truncado
+     */
+    public ModelCompletion readPartialContent(String content, ItineraryRequest request) throws IOException {
+        char[] chars = content.toCharArray();
+        ParsedContent parsed = readContent(chars, 0, chars.length, request, false);
+        return new ModelCompletion(parsed.itinerary(), null, null, parsed.truncated(), parsed.accommodationIncluded());
+    }
+
+    /**
+     * Lee un único día a partir de su JSON
+     * @param json Objeto JSON del día
+     * @return Día del itinerario
+     */
+    public DayItinerary readDay(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            return readDay(parser);
+        }
+    }
+
+    private ParsedContent readChoice(JsonParser parser, ItineraryRequest request, boolean structured,
+                                     String[] finishReason) throws IOException {
+        ParsedContent content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("message".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.currentName();
+                    parser.nextToken();
+                    if ("content".equals(messageField) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                        // The text buffer is only valid until the next token, so it is consumed right away
+                        content = readContent(parser.getTextCharacters(), parser.getTextOffset(),
+                            parser.getTextLength(), request, structured);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("finish_reason".equals(field)) {
+                finishReason[0] = text(parser, null);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private String readDelta(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("delta".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String deltaField = parser.currentName();
+                    parser.nextToken();
+                    if ("content".equals(deltaField)) {
+                        content = text(parser, null);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private TokenUsage readUsage(JsonParser parser) throws IOException {
+        int promptTokens = 0;
+        int completionTokens = 0;
+        int cachedTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "prompt_tokens" -> promptTokens = parser.getValueAsInt();
+                case "completion_tokens" -> completionTokens = parser.getValueAsInt();
+                case "prompt_tokens_details" -> {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String detail = parser.currentName();
+                        parser.nextToken();
+                        if ("cached_tokens".equals(detail)) {
+                            cachedTokens = parser.getValueAsInt();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new TokenUsage(promptTokens, completionTokens, cachedTokens);
+    }
+
+    /**
+     * Salta el resto de elementos de un arreglo ya iniciado
+     */
+    private void skipRemaining(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            parser.skipChildren();
+        }
+    }
+
+    private ParsedContent readContent(char[] chars, int offset, int length, ItineraryRequest request,
+                                      boolean structured) throws IOException {
+        int start = offset;
+        int end = offset + length;
+        while (!structured && start < end && chars[start] != '{') {
+            start++;
+        }
+        if (start == end) {
+            throw new IOException("El contenido del modelo no incluye un objeto JSON");
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(chars, start, end - start)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            return readItinerary(parser, request);
+        }
+    }
+
+    private ParsedContent readItinerary(JsonParser parser, ItineraryRequest request) throws IOException {
+        List<DayItinerary> days = new ArrayList<>();
+        Accommodation accommodation = null;
+        Double totalCost = null;
+        String currency = "USD";
+        List<String> travelTips = new ArrayList<>();
+        boolean truncated = false;
+
+        // Objects are only kept once fully read, so a cut-off day or accommodation is dropped
+        try {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "days" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                days.add(readDay(parser));
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    case "accommodation" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            accommodation = readAccommodation(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    case "totalCost", "totalEstimatedCost" -> totalCost = parser.getValueAsDouble();
+                    case "currency" -> currency = text(parser, "USD");
+                    case "travelTips" -> readStrings(parser, travelTips);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonEOFException e) {
+            truncated = true;
+        }
+
+        boolean accommodationIncluded = accommodation != null;
+        if (accommodation == null) {
+            accommodation = defaultAccommodation();
+        }
+        // A total written before the cut-off does not cover the missing days
+        if (totalCost == null || truncated) {
+            totalCost = estimateTotalCost(days, accommodation);
+        }
+
+        ItineraryResponse itinerary = new ItineraryResponse(
+            request.getDestination(),
+            request.getStartDate(),
+            request.getEndDate(),
+            request.getTravelers(),
+            request.getBudget(),
+            request.getInterests(),
+            days,
+            accommodation,
+            totalCost,
+            currency,
+            travelTips
+        );
+        return new ParsedContent(itinerary, truncated, accommodationIncluded);
+    }
+
+    private DayItinerary readDay(JsonParser parser) throws IOException {
+        DayItinerary day = new DayItinerary();
+        day.setMorningActivities(new ArrayList<>());
+        day.setAfternoonActivities(new ArrayList<>());
+        day.setEveningActivities(new ArrayList<>());
+        day.setRestaurants(new ArrayList<>());
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "dayNumber" -> day.setDayNumber(parser.getValueAsInt());
+                case "date" -> day.setDate(text(parser, null));
+                case "title", "dayTitle" -> day.setDayTitle(text(parser, null));
+                case "morningActivities" -> readActivities(parser, day.getMorningActivities());
+                case "afternoonActivities" -> readActivities(parser, day.getAfternoonActivities());
+                case "eveningActivities" -> readActivities(parser, day.getEveningActivities());
+                case "restaurants" -> readRestaurants(parser, day.getRestaurants());
+                case "summary", "daySummary" -> day.setDaySummary(text(parser, null));
+                case "estimatedCost" -> day.setEstimatedCost(parser.getValueAsDouble());
+                default -> parser.skipChildren();
+            }
+        }
+        return day;
+    }
+
+    private void readActivities(JsonParser parser, List<Activity> activities) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Activity activity = new Activity();
+            activity.setCurrency("USD");
+            activity.setIcon("📍");
+            activity.setBookingUrl("");
+            activity.setNotes("");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> activity.setName(text(parser, null));
+                    case "description" -> activity.setDescription(text(parser, null));
+                    case "time" -> activity.setTime(text(parser, null));
+                    case "duration" -> activity.setDuration(text(parser, null));
+                    case "location" -> activity.setLocation(text(parser, null));
+                    case "category" -> activity.setCategory(text(parser, null));
+                    case "cost" -> activity.setCost(parser.getValueAsDouble());
+                    case "currency" -> activity.setCurrency(text(parser, "USD"));
+                    case "emoji", "icon" -> activity.setIcon(text(parser, "📍"));
+                    case "bookingUrl" -> activity.setBookingUrl(text(parser, ""));
+                    case "tips", "notes" -> activity.setNotes(text(parser, ""));
+                    default -> parser.skipChildren();
+                }
+            }
+            activities.add(activity);
+        }
+    }
+
+    private void readRestaurants(JsonParser parser, List<Restaurant> restaurants) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setBookingUrl("");
+            restaurant.setNotes("");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> restaurant.setName(text(parser, null));
+                    case "cuisine" -> restaurant.setCuisine(text(parser, null));
+                    case "description" -> restaurant.setDescription(text(parser, null));
+                    case "address" -> restaurant.setAddress(text(parser, null));
+                    case "phone" -> restaurant.setPhone(text(parser, null));
+                    case "priceRange" -> restaurant.setPriceRange(text(parser, null));
+                    case "rating" -> restaurant.setRating(parser.getValueAsDouble());
+                    case "mealType", "timeSlot" -> restaurant.setTimeSlot(text(parser, null));
+                    case "bookingUrl" -> restaurant.setBookingUrl(text(parser, ""));
+                    case "tips", "notes" -> restaurant.setNotes(text(parser, ""));
+                    default -> parser.skipChildren();
+                }
+            }
+            restaurants.add(restaurant);
+        }
+    }
+
+    private Accommodation readAccommodation(JsonParser parser) throws IOException {
+        Accommodation accommodation = new Accommodation();
+        accommodation.setCurrency("USD");
+        accommodation.setBookingUrl("");
+        accommodation.setCheckIn("15:00");
+        accommodation.setCheckOut("11:00");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> accommodation.setName(text(parser, null));
+                case "type" -> accommodation.setType(text(parser, null));
+                case "description" -> accommodation.setDescription(text(parser, null));
+                case "address" -> accommodation.setAddress(text(parser, null));
+                case "phone" -> accommodation.setPhone(text(parser, null));
+                case "rating" -> accommodation.setRating(parser.getValueAsDouble());
+                case "priceRange" -> accommodation.setPriceRange(text(parser, null));
+                case "nightlyRate" -> accommodation.setNightlyRate(parser.getValueAsDouble());
+                case "currency" -> accommodation.setCurrency(text(parser, "USD"));
+                case "amenities" -> accommodation.setAmenities(text(parser, null));
+                case "bookingUrl" -> accommodation.setBookingUrl(text(parser, ""));
+                case "checkIn" -> accommodation.setCheckIn(text(parser, "15:00"));
+                case "checkOut" -> accommodation.setCheckOut(text(parser, "11:00"));
+                default -> parser.skipChildren();
+            }
+        }
+        return accommodation;
+    }
+
+    private void readStrings(JsonParser parser, List<String> values) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token.isScalarValue()) {
+                values.add(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private String text(JsonParser parser, String defaultValue) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return defaultValue;
+        }
+        return parser.getValueAsString(defaultValue);
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Token JSON inesperado: " + actual + " (se esperaba " + expected + ")");
+        }
+    }
+
+    private double estimateTotalCost(List<DayItinerary> days, Accommodation accommodation) {
+        double total = accommodation.getNightlyRate() * days.size();
+        for (DayItinerary day : days) {
+            total += day.getEstimatedCost();
+        }
+        return total;
+    }
+
+    private Accommodation defaultAccommodation() {
+        return new Accommodation(
+            "Default Hotel", "Hotel", "Comfortable accommodation",
+            "123 Main Street", "+1-234-567-8900", 4.0, "$$",
+            100.0, "USD", "WiFi, Pool", "", "15:00", "11:00"
+        );
+    }
+
+    private record ParsedContent(ItineraryResponse itinerary, boolean truncated, boolean accommodationIncluded) {}
+}
@@ -5,9 +5,9 @@ import com.tripmind.ai.dto.*;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Servicio para la generación y gestión de itinerarios de viaje
@@ -16,16 +16,19 @@ import java.util.*;
 public class ItineraryService {
 
     /**
-     * Genera un itinerario mock personalizado
+     * Genera un itinerario mock personalizado. Es el fallback cuando falla la IA, así que
+     * reutiliza plantillas precalculadas por combinación de intereses con actividades compartidas
+     * que no se pueden modificar, y solo crea por petición los objetos que dependen del destino,
+     * del día o de la fecha.
      * @param request Datos del viaje
      * @return Itinerario generado
      */
     public ItineraryResponse generateMockItinerary(ItineraryRequest request) {
         int duration = calculateDuration(request.getStartDate(), request.getEndDate());
-        List<DayItinerary> days = generateDayItineraries(request, duration);
+        int interests = interestMask(request.getInterests());
+        List<DayItinerary> days = generateDayItineraries(request, duration, interests);
         Accommodation accommodation = generateAccommodation(request);
-        double totalCost = calculateTotalCost(days, accommodation, request.getBudget());
-        List<String> travelTips = generateTravelTips(request);
+        double totalCost = calculateTotalCost(days, accommodation);
 
         return new ItineraryResponse(
             request.getDestination(),
@@ -38,7 +41,7 @@ public class ItineraryService {
             accommodation,
             totalCost,
             "USD",
-            travelTips
+            TRAVEL_TIPS
         );
     }
 
@@ -67,27 +70,6 @@ public class ItineraryService {
         return true; // Placeholder
     }
 
-    /**
-     * Guarda un viaje en la base de datos
-     * @param userId ID del usuario
-     * @param tripData Datos del viaje
-     * @return ID del viaje guardado
-     */
-    public String saveTrip(String userId, String tripData) {
-        // TODO: Implementar persistencia con Supabase/PostgreSQL
-        return "trip_" + System.currentTimeMillis();
-    }
-
-    /**
-     * Obtiene las preferencias del usuario
-     * @param userId ID del usuario
-     * @return Preferencias del usuario
-     */
-    public String getUserPreferences(String userId) {
-        // TODO: Implementar obtención de preferencias desde base de datos
-        return "Preferencias por defecto para usuario: " + userId;
-    }
-
     // Métodos auxiliares para generar datos mock
     private int calculateDuration(String startDate, String endDate) {
         LocalDate start = LocalDate.parse(startDate);
@@ -95,30 +77,49 @@ public class ItineraryService {
         return (int) ChronoUnit.DAYS.between(start, end) + 1;
     }
 
-    private List<DayItinerary> generateDayItineraries(ItineraryRequest request, int duration) {
-        List<DayItinerary> days = new ArrayList<>();
+    /**
+     * Convierte la lista de intereses en una máscara de bits, recorriéndola una sola vez
+     */
+    private static int interestMask(List<String> interests) {
+        int mask = 0;
+        if (interests == null) {
+            return mask;
+        }
+        for (String interest : interests) {
+            // A string switch throws on null, and the mock fallback must accept any parsed request
+            if (interest == null) {
+                continue;
+            }
+            switch (interest) {
+                case "Culture" -> mask |= CULTURE;
+                case "Food" -> mask |= FOOD;
+                case "Adventure" -> mask |= ADVENTURE;
+                case "Nightlife" -> mask |= NIGHTLIFE;
+                default -> { }
+            }
+        }
+        return mask;
+    }
+
+    private List<DayItinerary> generateDayItineraries(ItineraryRequest request, int duration, int interests) {
+        List<DayItinerary> days = new ArrayList<>(duration);
         LocalDate currentDate = LocalDate.parse(request.getStartDate());
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        String destination = request.getDestination();
+        // The restaurant only depends on the destination: one read-only instance shared by every day
+        List<Restaurant> restaurants = List.of(generateRestaurant(destination));
 
         for (int i = 1; i <= duration; i++) {
-            String dayTitle = generateDayTitle(request.getDestination(), i, request.getInterests());
-            List<Activity> morningActivities = generateMorningActivities(request, i);
-            List<Activity> afternoonActivities = generateAfternoonActivities(request, i);
-            List<Activity> eveningActivities = generateEveningActivities(request, i);
-            List<Restaurant> restaurants = generateRestaurants(request, i);
-            String daySummary = generateDaySummary(request, i, morningActivities, afternoonActivities, eveningActivities);
-            double estimatedCost = calculateDayCost(morningActivities, afternoonActivities, eveningActivities, restaurants);
-
+            DayTemplate template = DAY_TEMPLATES[i == 1 ? 0 : 1][interests];
             days.add(new DayItinerary(
                 i,
-                currentDate.format(formatter),
-                dayTitle,
-                morningActivities,
-                afternoonActivities,
-                eveningActivities,
+                currentDate.toString(),
+                generateDayTitle(i),
+                template.morning(),
+                template.afternoon(),
+                template.evening(),
                 restaurants,
-                daySummary,
-                estimatedCost
+                "Day " + i + " in " + destination + template.summarySuffix(),
+                template.cost()
             ));
 
             currentDate = currentDate.plusDays(1);
@@ -127,194 +128,40 @@ public class ItineraryService {
         return days;
     }
 
-    private String generateDayTitle(String destination, int dayNumber, List<String> interests) {
-        String[] titles = {
-            "Arrival & First Impressions",
-            "Cultural Exploration",
-            "Local Cuisine & Markets",
-            "Historic Sites & Landmarks",
-            "Nature & Outdoor Adventures",
-            "Art & Museums",
-            "Shopping & Local Life",
-            "Hidden Gems & Local Secrets"
-        };
-        
-        if (dayNumber <= titles.length) {
-            return titles[dayNumber - 1];
+    private static String generateDayTitle(int dayNumber) {
+        if (dayNumber <= DAY_TITLES.length) {
+            return DAY_TITLES[dayNumber - 1];
         }
         return "Day " + dayNumber + " Adventures";
     }
 
-    private List<Activity> generateMorningActivities(ItineraryRequest request, int dayNumber) {
-        List<Activity> activities = new ArrayList<>();
-        String destination = request.getDestination().toLowerCase();
-        
-        if (dayNumber == 1) {
-            activities.add(new Activity(
-                "Airport Transfer & Hotel Check-in",
-                "Transfer from airport to accommodation and check-in process",
-                "09:00",
-                "2 hours",
-                "Airport to Hotel",
-                "Transportation",
-                50.0,
-                "USD",
-                "🚗",
-                "",
-                "Allow extra time for customs and immigration"
-            ));
-        } else {
-            activities.add(new Activity(
-                "Morning Coffee & Local Breakfast",
-                "Start your day with authentic local breakfast and coffee",
-                "08:00",
-                "1.5 hours",
-                "Local Café",
-                "Food & Drink",
-                15.0,
-                "USD",
-                "☕",
-                "",
-                "Try local specialties"
-            ));
-        }
-
-        if (request.getInterests().contains("Culture")) {
-            activities.add(new Activity(
-                "Museum Visit",
-                "Explore local history and culture at a renowned museum",
-                "10:00",
-                "2 hours",
-                "City Museum",
-                "Culture",
-                25.0,
-                "USD",
-                "🏛️",
-                "",
-                "Book tickets in advance for popular exhibitions"
-            ));
-        }
-
-        return activities;
-    }
-
-    private List<Activity> generateAfternoonActivities(ItineraryRequest request, int dayNumber) {
-        List<Activity> activities = new ArrayList<>();
-        
-        if (request.getInterests().contains("Food")) {
-            activities.add(new Activity(
-                "Food Tour",
-                "Guided tour of local food markets and street food",
-                "14:00",
-                "3 hours",
-                "Local Markets",
-                "Food & Drink",
-                45.0,
-                "USD",
-                "🍜",
-                "",
-                "Come hungry and try everything!"
-            ));
-        }
-
-        if (request.getInterests().contains("Adventure")) {
-            activities.add(new Activity(
-                "Adventure Activity",
-                "Exciting outdoor adventure based on local geography",
-                "16:00",
-                "2 hours",
-                "Adventure Location",
-                "Adventure",
-                80.0,
-                "USD",
-                "🏔️",
-                "",
-                "Wear appropriate clothing and bring water"
-            ));
-        }
-
-        return activities;
-    }
-
-    private List<Activity> generateEveningActivities(ItineraryRequest request, int dayNumber) {
-        List<Activity> activities = new ArrayList<>();
-        
-        activities.add(new Activity(
-            "Sunset Viewpoint",
-            "Watch the sunset from a beautiful local viewpoint",
-            "18:30",
-            "1 hour",
-            "Scenic Viewpoint",
-            "Sightseeing",
-            0.0,
-            "USD",
-            "🌅",
-            "",
-            "Bring a camera for amazing photos"
-        ));
-
-        if (request.getInterests().contains("Nightlife")) {
-            activities.add(new Activity(
-                "Local Bar & Nightlife",
-                "Experience the local nightlife scene",
-                "20:00",
-                "3 hours",
-                "Downtown Area",
-                "Nightlife",
-                35.0,
-                "USD",
-                "🍻",
-                "",
-                "Check dress codes and age requirements"
-            ));
-        }
-
-        return activities;
-    }
-
-    private List<Restaurant> generateRestaurants(ItineraryRequest request, int dayNumber) {
-        List<Restaurant> restaurants = new ArrayList<>();
-        
-        restaurants.add(new Restaurant(
+    private static Restaurant generateRestaurant(String destination) {
+        return new SharedRestaurant(
             "Local Restaurant",
             "Traditional Local Cuisine",
             "Authentic local dishes with traditional preparation methods",
-            "123 Main Street, " + request.getDestination(),
+            "123 Main Street, " + destination,
             "+1-234-567-8900",
             "$$",
             4.5,
             "Lunch",
             "https://example.com/booking",
             "Reservations recommended for dinner"
-        ));
-
-        return restaurants;
-    }
-
-    private String generateDaySummary(ItineraryRequest request, int dayNumber, 
-                                    List<Activity> morning, List<Activity> afternoon, List<Activity> evening) {
-        return String.format("Day %d in %s offers a perfect blend of activities. " +
-                           "Start with %d morning activities, enjoy %d afternoon experiences, " +
-                           "and end with %d evening activities for a memorable day.",
-                           dayNumber, request.getDestination(), 
-                           morning.size(), afternoon.size(), evening.size());
-    }
-
-    private double calculateDayCost(List<Activity> morning, List<Activity> afternoon, 
-                                  List<Activity> evening, List<Restaurant> restaurants) {
-        double cost = 0.0;
-        for (Activity activity : morning) cost += activity.getCost();
-        for (Activity activity : afternoon) cost += activity.getCost();
-        for (Activity activity : evening) cost += activity.getCost();
-        return cost;
+        );
     }
 
     private Accommodation generateAccommodation(ItineraryRequest request) {
         String budget = request.getBudget();
         double baseRate = 150.0; // Default mid-range
-        
-        if ("budget".equals(budget)) baseRate = 80.0;
-        else if ("luxury".equals(budget)) baseRate = 300.0;
+        String priceRange = "$$";
+
+        if ("budget".equals(budget)) {
+            baseRate = 80.0;
+            priceRange = "$";
+        } else if ("luxury".equals(budget)) {
+            baseRate = 300.0;
+            priceRange = "$$$";
+        }
 
         return new Accommodation(
             "Boutique Hotel " + request.getDestination(),
@@ -323,7 +170,7 @@ public class ItineraryService {
             "456 Hotel Street, " + request.getDestination(),
             "+1-234-567-8901",
             4.8,
-            budget.equals("budget") ? "$" : budget.equals("luxury") ? "$$$" : "$$",
+            priceRange,
             baseRate,
             "USD",
             "WiFi, Pool, Gym, Restaurant, Concierge",
@@ -333,7 +180,7 @@ public class ItineraryService {
         );
     }
 
-    private double calculateTotalCost(List<DayItinerary> days, Accommodation accommodation, String budget) {
+    private double calculateTotalCost(List<DayItinerary> days, Accommodation accommodation) {
         double totalCost = 0.0;
         for (DayItinerary day : days) {
             totalCost += day.getEstimatedCost();
@@ -342,14 +189,231 @@ public class ItineraryService {
         return totalCost;
     }
 
-    private List<String> generateTravelTips(ItineraryRequest request) {
-        List<String> tips = new ArrayList<>();
-        tips.add("Book accommodations in advance, especially during peak season");
-        tips.add("Download offline maps and translation apps");
-        tips.add("Carry local currency and a backup payment method");
-        tips.add("Check visa requirements and travel documents");
-        tips.add("Pack according to the local climate and culture");
-        tips.add("Keep emergency contacts and embassy information handy");
-        return tips;
+    // Plantillas compartidas por todas las peticiones (flyweight): listas no modificables de actividades
+    // cuyos setters fallan, para que ningún llamante pueda alterar las respuestas de otros
+
+    private static final int CULTURE = 1;
+    private static final int FOOD = 1 << 1;
+    private static final int ADVENTURE = 1 << 2;
+    private static final int NIGHTLIFE = 1 << 3;
+
+    private static final String[] DAY_TITLES = {
+        "Arrival & First Impressions",
+        "Cultural Exploration",
+        "Local Cuisine & Markets",
+        "Historic Sites & Landmarks",
+        "Nature & Outdoor Adventures",
+        "Art & Museums",
+        "Shopping & Local Life",
+        "Hidden Gems & Local Secrets"
+    };
+
+    private static final Activity AIRPORT_TRANSFER = new SharedActivity(
+        "Airport Transfer & Hotel Check-in",
+        "Transfer from airport to accommodation and check-in process",
+        "09:00",
+        "2 hours",
+        "Airport to Hotel",
+        "Transportation",
+        50.0,
+        "USD",
+        "🚗",
+        "",
+        "Allow extra time for customs and immigration"
+    );
+
+    private static final Activity LOCAL_BREAKFAST = new SharedActivity(
+        "Morning Coffee & Local Breakfast",
+        "Start your day with authentic local breakfast and coffee",
+        "08:00",
+        "1.5 hours",
+        "Local Café",
+        "Food & Drink",
+        15.0,
+        "USD",
+        "☕",
+        "",
+        "Try local specialties"
+    );
+
+    private static final Activity MUSEUM_VISIT = new SharedActivity(
+        "Museum Visit",
+        "Explore local history and culture at a renowned museum",
+        "10:00",
+        "2 hours",
+        "City Museum",
+        "Culture",
+        25.0,
+        "USD",
+        "🏛️",
+        "",
+        "Book tickets in advance for popular exhibitions"
+    );
+
+    private static final Activity FOOD_TOUR = new SharedActivity(
+        "Food Tour",
+        "Guided tour of local food markets and street food",
+        "14:00",
+        "3 hours",
+        "Local Markets",
+        "Food & Drink",
+        45.0,
+        "USD",
+        "🍜",
+        "",
+        "Come hungry and try everything!"
+    );
+
+    private static final Activity ADVENTURE_ACTIVITY = new SharedActivity(
+        "Adventure Activity",
+        "Exciting outdoor adventure based on local geography",
+        "16:00",
+        "2 hours",
+        "Adventure Location",
+        "Adventure",
+        80.0,
+        "USD",
+        "🏔️",
+        "",
+        "Wear appropriate clothing and bring water"
+    );
+
+    private static final Activity SUNSET_VIEWPOINT = new SharedActivity(
+        "Sunset Viewpoint",
+        "Watch the sunset from a beautiful local viewpoint",
+        "18:30",
+        "1 hour",
+        "Scenic Viewpoint",
+        "Sightseeing",
+        0.0,
+        "USD",
+        "🌅",
+        "",
+        "Bring a camera for amazing photos"
+    );
+
+    private static final Activity LOCAL_NIGHTLIFE = new SharedActivity(
+        "Local Bar & Nightlife",
+        "Experience the local nightlife scene",
+        "20:00",
+        "3 hours",
+        "Downtown Area",
+        "Nightlife",
+        35.0,
+        "USD",
+        "🍻",
+        "",
+        "Check dress codes and age requirements"
+    );
+
+    private static final List<String> TRAVEL_TIPS = List.of(
+        "Book accommodations in advance, especially during peak season",
+        "Download offline maps and translation apps",
+        "Carry local currency and a backup payment method",
+        "Check visa requirements and travel documents",
+        "Pack according to the local climate and culture",
+        "Keep emergency contacts and embassy information handy"
+    );
+
+    /**
+     * Actividad compartida entre respuestas: de solo lectura. Quien necesite cambiarla debe copiarla.
+     */
+    private static final class SharedActivity extends Activity {
+
+        SharedActivity(String name, String description, String time, String duration, String location,
+                       String category, double cost, String currency, String icon, String bookingUrl, String notes) {
+            super(name, description, time, duration, location, category, cost, currency, icon, bookingUrl, notes);
+        }
+
+        @Override public void setName(String name) { throw readOnly(); }
+        @Override public void setDescription(String description) { throw readOnly(); }
+        @Override public void setTime(String time) { throw readOnly(); }
+        @Override public void setDuration(String duration) { throw readOnly(); }
+        @Override public void setLocation(String location) { throw readOnly(); }
+        @Override public void setCategory(String category) { throw readOnly(); }
+        @Override public void setCost(double cost) { throw readOnly(); }
+        @Override public void setCurrency(String currency) { throw readOnly(); }
+        @Override public void setIcon(String icon) { throw readOnly(); }
+        @Override public void setBookingUrl(String bookingUrl) { throw readOnly(); }
+        @Override public void setNotes(String notes) { throw readOnly(); }
+    }
+
+    /**
+     * Restaurante compartido por todos los días de una respuesta: de solo lectura
+     */
+    private static final class SharedRestaurant extends Restaurant {
+
+        SharedRestaurant(String name, String cuisine, String description, String address, String phone,
+                         String priceRange, double rating, String timeSlot, String bookingUrl, String notes) {
+            super(name, cuisine, description, address, phone, priceRange, rating, timeSlot, bookingUrl, notes);
+        }
+
+        @Override public void setName(String name) { throw readOnly(); }
+        @Override public void setCuisine(String cuisine) { throw readOnly(); }
+        @Override public void setDescription(String description) { throw readOnly(); }
+        @Override public void setAddress(String address) { throw readOnly(); }
+        @Override public void setPhone(String phone) { throw readOnly(); }
+        @Override public void setPriceRange(String priceRange) { throw readOnly(); }
+        @Override public void setRating(double rating) { throw readOnly(); }
+        @Override public void setTimeSlot(String timeSlot) { throw readOnly(); }
+        @Override public void setBookingUrl(String bookingUrl) { throw readOnly(); }
+        @Override public void setNotes(String notes) { throw readOnly(); }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Los datos compartidos del itinerario mock son de solo lectura");
+    }
+
+    /**
+     * Actividades de un día ya resueltas para una combinación de intereses, con su coste
+     * y el final del resumen precalculados
+     */
+    private record DayTemplate(List<Activity> morning, List<Activity> afternoon, List<Activity> evening,
+                               double cost, String summarySuffix) {
+
+        static DayTemplate of(boolean arrivalDay, int interests) {
+            List<Activity> morning = new ArrayList<>();
+            morning.add(arrivalDay ? AIRPORT_TRANSFER : LOCAL_BREAKFAST);
+            if ((interests & CULTURE) != 0) {
+                morning.add(MUSEUM_VISIT);
+            }
+
+            List<Activity> afternoon = new ArrayList<>();
+            if ((interests & FOOD) != 0) {
+                afternoon.add(FOOD_TOUR);
+            }
+            if ((interests & ADVENTURE) != 0) {
+                afternoon.add(ADVENTURE_ACTIVITY);
+            }
+
+            List<Activity> evening = new ArrayList<>();
+            evening.add(SUNSET_VIEWPOINT);
+            if ((interests & NIGHTLIFE) != 0) {
+                evening.add(LOCAL_NIGHTLIFE);
+            }
+
+            double cost = 0.0;
+            for (Activity activity : morning) cost += activity.getCost();
+            for (Activity activity : afternoon) cost += activity.getCost();
+            for (Activity activity : evening) cost += activity.getCost();
+
+            String summarySuffix = " offers a perfect blend of activities. "
+                + "Start with " + morning.size() + " morning activities, enjoy " + afternoon.size()
+                + " afternoon experiences, and end with " + evening.size() + " evening activities for a memorable day.";
+
+            return new DayTemplate(List.copyOf(morning), List.copyOf(afternoon), List.copyOf(evening), cost, summarySuffix);
+        }
+    }
+
+    /**
+     * Plantillas indexadas por [día de llegada ? 0 : 1][máscara de intereses]
+     */
+    private static final DayTemplate[][] DAY_TEMPLATES = new DayTemplate[2][NIGHTLIFE << 1];
+
+    static {
+        for (int interests = 0; interests < (NIGHTLIFE << 1); interests++) {
+            DAY_TEMPLATES[0][interests] = DayTemplate.of(true, interests);
+            DAY_TEMPLATES[1][interests] = DayTemplate.of(false, interests);
+        }
     }
 }
@@ -0,0 +1,116 @@
+package com.tripmind.ai.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ensambla los fragmentos de contenido que envía el modelo en streaming y detecta
+ * cada objeto del arreglo "days" en cuanto su JSON queda completo.
+ * Ignora cualquier texto previo al primer '{' (razonamiento, bloques markdown).
+ */
+public class ItineraryStreamAssembler {
+
+    private static final String DAYS_KEY = "days";
+
+    private final StringBuilder content = new StringBuilder();
+    private int scanned;
+
+    private int jsonStart = -1;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int stringStart = -1;
+    private String lastString;
+    private String pendingKey;
+    private boolean inDays;
+    private int dayStart = -1;
+
+    /**
+     * Agrega un fragmento de contenido
+     * @param delta Texto recibido del modelo
+     * @return JSON de los días completados con este fragmento
+     */
+    public List<String> append(String delta) {
+        content.append(delta);
+        List<String> completedDays = new ArrayList<>(1);
+
+        for (; scanned < content.length(); scanned++) {
+            char c = content.charAt(scanned);
+
+            if (jsonStart < 0) {
+                if (c == '{') {
+                    jsonStart = scanned;
+                    depth = 1;
+                }
+                continue;
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1) {
+                        lastString = content.substring(stringStart + 1, scanned);
+                    }
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringStart = scanned;
+                }
+                case ':' -> {
+                    if (depth == 1) {
+                        pendingKey = lastString;
+                    }
+                }
+                case '[' -> {
+                    if (depth == 1 && DAYS_KEY.equals(pendingKey)) {
+                        inDays = true;
+                    }
+                    depth++;
+                }
+                case '{' -> {
+                    if (inDays && depth == 2) {
+                        dayStart = scanned;
+                    }
+                    depth++;
+                }
+                case '}' -> {
+                    depth--;
+                    if (inDays && depth == 2 && dayStart >= 0) {
+                        completedDays.add(content.substring(dayStart, scanned + 1));
+                        dayStart = -1;
+                    }
+                }
+                case ']' -> {
+                    depth--;
+                    if (inDays && depth == 1) {
+                        inDays = false;
+                        pendingKey = null;
+                    }
+                }
+                case ',' -> {
+                    if (depth == 1) {
+                        pendingKey = null;
+                    }
+                }
+                default -> { }
+            }
+        }
+
+        return completedDays;
+    }
+
+    /**
+     * Contenido completo recibido hasta el momento
+     */
+    public String getContent() {
+        return content.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.tripmind.ai.service;
+
+/**
+ * Carril de la cola de trabajos de generación. Los trabajos de un carril solo empiezan
+ * cuando los carriles anteriores están vacíos.
+ */
+public enum JobPriority {
+    INTERACTIVE("interactive"),
+    BACKGROUND("background"),
+    PREFETCH("prefetch");
+
+    private final String tag;
+
+    JobPriority(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Convierte el parámetro de la petición, sin distinguir mayúsculas
+     * @param value Nombre del carril
+     * @return Carril correspondiente
+     * @throws IllegalArgumentException si el carril no existe
+     */
+    public static JobPriority of(String value) {
+        for (JobPriority priority : values()) {
+            if (priority.tag.equalsIgnoreCase(value)) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("Unknown job priority: " + value);
+    }
+}
@@ -0,0 +1,11 @@
+package com.tripmind.ai.service;
+
+/**
+ * Se lanza cuando el carril de la cola de trabajos de generación está lleno y el trabajo no se acepta
+ */
+public class JobQueueFullException extends RuntimeException {
+
+    public JobQueueFullException(String message) {
+        super(message);
+    }
+}
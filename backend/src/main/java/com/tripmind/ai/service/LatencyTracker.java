@@ -0,0 +1,75 @@
+package com.tripmind.ai.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Ventana deslizante de latencias recientes para calcular percentiles en línea
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int windowSize, int minSamples) {
+        this.samples = new long[windowSize];
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Registra una latencia observada
+     * @param nanos Latencia en nanosegundos
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Percentil de las latencias de la ventana
+     * @param quantile Cuantil entre 0 y 1
+     * @param defaultValue Valor a devolver mientras no haya muestras suficientes
+     * @return Latencia del percentil pedido
+     */
+    public Duration percentile(double quantile, Duration defaultValue) {
+        long[] sorted = snapshot();
+        if (sorted.length < minSamples) {
+            return defaultValue;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    /**
+     * Mediana de las latencias superiores a un umbral: estimación de cuánto habría tardado
+     * una llamada que ya superó ese tiempo
+     * @param thresholdNanos Umbral en nanosegundos
+     * @return Mediana condicionada o null si no hay muestras por encima del umbral
+     */
+    public Duration medianAbove(long thresholdNanos) {
+        long[] sorted = snapshot();
+        int from = 0;
+        while (from < sorted.length && sorted[from] <= thresholdNanos) {
+            from++;
+        }
+        if (from == sorted.length) {
+            return null;
+        }
+        return Duration.ofNanos(sorted[from + (sorted.length - from) / 2]);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    private synchronized long[] snapshot() {
+        long[] copy = Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.dto.ItineraryResponse;
+
+/**
+ * Resultado de una llamada a /chat/completions ya parseado
+ * @param itinerary Itinerario contenido en la respuesta
+ * @param finishReason Motivo de fin del modelo ("stop", "length", ...) o null
+ * @param usage Consumo de tokens o null si el proveedor no lo informa
+ * @param truncated Si el JSON del contenido terminó antes de cerrarse (el itinerario solo trae lo completo)
+ * @param accommodationIncluded Si el contenido traía el alojamiento completo
+ * @param provider Proveedor que respondió, o null si no se conoce
+ * @param model Modelo que respondió, o null si no se conoce
+ */
+public record ModelCompletion(ItineraryResponse itinerary, String finishReason, TokenUsage usage,
+                              boolean truncated, boolean accommodationIncluded, String provider, String model) {
+
+    public ModelCompletion(ItineraryResponse itinerary, String finishReason, TokenUsage usage,
+                           boolean truncated, boolean accommodationIncluded) {
+        this(itinerary, finishReason, usage, truncated, accommodationIncluded, null, null);
+    }
+
+    /**
+     * Respuesta cortada por el límite de tokens de salida
+     */
+    public boolean cutOffByLength() {
+        return truncated && (finishReason == null || "length".equals(finishReason));
+    }
+
+    /**
+     * La misma respuesta atribuida al proveedor y modelo que la enviaron
+     */
+    public ModelCompletion answeredBy(String provider, String model) {
+        return new ModelCompletion(itinerary, finishReason, usage, truncated, accommodationIncluded, provider, model);
+    }
+
+    /**
+     * La respuesta completada con continuaciones: ya no está cortada y conserva su origen
+     */
+    public ModelCompletion continuedAs(ItineraryResponse completed) {
+        return new ModelCompletion(completed, finishReason, usage, false, completed.getAccommodation() != null,
+            provider, model);
+    }
+}
@@ -2,325 +2,631 @@ package com.tripmind.ai.service;
 
 import com.tripmind.ai.controller.ItineraryController.ItineraryRequest;
 import com.tripmind.ai.dto.*;
+import com.tripmind.ai.prompt.ItineraryPrompt;
+import com.tripmind.ai.prompt.ItineraryPromptBuilder;
+import com.tripmind.ai.prompt.ItinerarySchema;
+import com.tripmind.ai.provider.CircuitOpenException;
+import com.tripmind.ai.provider.LlmProvider;
+import com.tripmind.ai.provider.LlmProviderRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Servicio para integración directa con OpenRouter API usando DeepSeek-R1
+ * Servicio para integración directa con OpenRouter API usando DeepSeek-R1. Cada llamada pasa por
+ * LlmProviderRouter, que puede enviarla a otro proveedor compatible (OpenAI, DeepSeek, local).
  */
 @Service
 public class OpenRouterService {
 
-    @Value("${OPENROUTER_API_KEY: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}")
-    private String apiKey;
+    private static final String STREAM_DONE = "[DONE]";
+    private static final ModelTarget ROUTED = new ModelTarget(null, null);
 
-    @Value("${OPENROUTER_MODEL:deepseek/deepseek-r1}")
-    private String model;
+    @Value("${app.ai.hedging.enabled:false}")
+    private boolean hedgingEnabled;
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    @Value("${app.ai.hedging.secondary-provider:openrouter}")
+    private String hedgingSecondaryProvider;
 
-    public OpenRouterService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder
-            .baseUrl("https://openrouter.ai/api/v1")
-            .defaultHeader("Authorization", "Bearer " + apiKey)
-            .defaultHeader("Content-Type", "application/json")
-            .build();
-        this.objectMapper = objectMapper;
+    @Value("${app.ai.hedging.secondary-model:deepseek/deepseek-chat}")
+    private String hedgingSecondaryModel;
+
+    @Value("${app.ai.hedging.delay-percentile:0.9}")
+    private double hedgingDelayPercentile;
+
+    @Value("${app.ai.hedging.min-delay:5s}")
+    private Duration hedgingMinDelay;
+
+    @Value("${app.ai.hedging.initial-delay:30s}")
+    private Duration hedgingInitialDelay;
+
+    @Value("${app.ai.timeout.initial:90s}")
+    private Duration timeoutInitial;
+
+    @Value("${app.ai.timeout.min:10s}")
+    private Duration timeoutMin;
+
+    @Value("${app.ai.timeout.max:120s}")
+    private Duration timeoutMax;
+
+    @Value("${app.ai.timeout.percentile:0.99}")
+    private double timeoutPercentile;
+
+    @Value("${app.ai.timeout.multiplier:1.5}")
+    private double timeoutMultiplier;
+
+    @Value("${app.ai.timeout.stream-idle:30s}")
+    private Duration timeoutStreamIdle;
+
+    @Value("${app.ai.chunking.enabled:true}")
+    private boolean chunkingEnabled;
+
+    @Value("${app.ai.chunking.min-days:6}")
+    private int chunkingMinDays;
+
+    @Value("${app.ai.chunking.days-per-chunk:4}")
+    private int chunkingDaysPerChunk;
+
+    @Value("${app.ai.chunking.max-parallel:4}")
+    private int chunkingMaxParallel;
+
+    @Value("${app.ai.truncation.max-continuations:1}")
+    private int truncationMaxContinuations;
+
+    @Value("${app.ai.structured-output.exclude-reasoning:true}")
+    private boolean excludeReasoning;
+
+    private final LlmProviderRouter router;
+    private final ItineraryJsonReader jsonReader;
+    private final ItineraryPromptBuilder promptBuilder;
+    private final ItinerarySchema itinerarySchema;
+    private final UpstreamConcurrencyLimiter upstreamLimiter;
+    private final MeterRegistry meterRegistry;
+
+    private final LatencyTracker primaryLatency = new LatencyTracker(256, 20);
+    private final LatencyTracker upstreamLatency = new LatencyTracker(256, 20);
+    private final Counter hedges;
+    private final Timer hedgeLatencySaved;
+    private final Timer promptBuildTime;
+    private final Timer parseTime;
+
+    public OpenRouterService(LlmProviderRouter router, ItineraryJsonReader jsonReader,
+                             ItineraryPromptBuilder promptBuilder, ItinerarySchema itinerarySchema,
+                             UpstreamConcurrencyLimiter upstreamLimiter, MeterRegistry meterRegistry) {
+        this.router = router;
+        this.jsonReader = jsonReader;
+        this.promptBuilder = promptBuilder;
+        this.itinerarySchema = itinerarySchema;
+        this.upstreamLimiter = upstreamLimiter;
+        this.meterRegistry = meterRegistry;
+
+        this.hedges = Counter.builder("tripmind.openrouter.hedge.requests")
+            .description("Llamadas de cobertura lanzadas al modelo secundario")
+            .register(meterRegistry);
+        this.hedgeLatencySaved = Timer.builder("tripmind.openrouter.hedge.latency-saved")
+            .description("Latencia ahorrada estimada cuando gana el modelo secundario")
+            .register(meterRegistry);
+        this.promptBuildTime = Timer.builder("tripmind.itinerary.prompt.build")
+            .description("Tiempo de construcción del prompt")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.parseTime = Timer.builder("tripmind.itinerary.parse")
+            .description("Tiempo de extracción y parseo del JSON devuelto por el modelo")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("tripmind.openrouter.hedge.delay", this, service -> service.hedgeDelay().toMillis())
+            .description("Retardo actual antes de lanzar la llamada de cobertura (ms)")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.openrouter.timeout", this, service -> service.upstreamTimeout().toMillis())
+            .description("Timeout adaptativo actual de las llamadas a OpenRouter (ms)")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
     }
 
     /**
-     * Genera un itinerario usando OpenRouter API
+     * Genera un itinerario usando OpenRouter API (bloqueante). Cada llamada al proveedor pasa
+     * por el límite de concurrencia, igual que en la versión no bloqueante.
      */
     public ItineraryResponse generateItinerary(ItineraryRequest request) {
-        try {
-            String prompt = buildPrompt(request);
-            String response = callOpenRouter(prompt);
-            return parseResponse(response, request);
-        } catch (Exception e) {
-            throw new RuntimeException("Error calling OpenRouter API: " + e.getMessage(), e);
-        }
+        return generateItineraryAsync(request).block();
     }
 
-    private String buildPrompt(ItineraryRequest request) {
-        int duration = calculateDuration(request.getStartDate(), request.getEndDate());
-        String interests = String.join(", ", request.getInterests());
-        
-        return String.format("""
-            Generate a detailed travel itinerary for %s from %s to %s (%d days) for %d travelers with %s budget.
-            
-            Interests: %s
-            
-            Please provide a JSON response with this exact structure:
-            {
-              "destination": "%s",
-              "startDate": "%s",
-              "endDate": "%s",
-              "travelers": %d,
-              "budget": "%s",
-              "interests": %s,
-              "days": [
-                {
-                  "dayNumber": 1,
-                  "date": "%s",
-                  "title": "Day 1: Arrival and First Impressions",
-                  "morningActivities": [
-                    {
-                      "name": "Airport Transfer",
-                      "description": "Transfer from airport to hotel",
-                      "time": "09:00",
-                      "duration": "2 hours",
-                      "location": "Airport to Hotel",
-                      "category": "Transportation",
-                      "cost": 50.0,
-                      "currency": "USD",
-                      "emoji": "🚗",
-                      "bookingUrl": "",
-                      "tips": "Allow extra time for customs"
-                    }
-                  ],
-                  "afternoonActivities": [],
-                  "eveningActivities": [],
-                  "restaurants": [
-                    {
-                      "name": "Local Restaurant",
-                      "cuisine": "Local Cuisine",
-                      "description": "Authentic local dishes",
-                      "address": "123 Main Street",
-                      "phone": "+1-234-567-8900",
-                      "priceRange": "$$",
-                      "rating": 4.5,
-                      "mealType": "Lunch",
-                      "bookingUrl": "",
-                      "tips": "Reservations recommended"
-                    }
-                  ],
-                  "summary": "First day summary",
-                  "estimatedCost": 100.0
+    /**
+     * Genera un itinerario usando OpenRouter API sin bloquear: la llamada HTTP y el
+     * parseo se ejecutan sobre el event loop de WebClient
+     */
+    public Mono<ItineraryResponse> generateItineraryAsync(ItineraryRequest request) {
+        return Mono.defer(() -> {
+                if (router.allCircuitsOpen()) {
+                    return Mono.error(new CircuitOpenException("Circuit is open for every AI provider"));
+                }
+                int duration = calculateDuration(request.getStartDate(), request.getEndDate());
+                if (chunkingEnabled && duration >= chunkingMinDays) {
+                    return generateChunked(request, duration);
                 }
-              ],
-              "accommodation": {
-                "name": "Hotel Name",
-                "type": "Hotel",
-                "description": "Comfortable hotel",
-                "address": "456 Hotel Street",
-                "phone": "+1-234-567-8901",
-                "rating": 4.5,
-                "priceRange": "$$",
-                "nightlyRate": 150.0,
-                "currency": "USD",
-                "amenities": "WiFi, Pool",
-                "bookingUrl": "",
-                "checkIn": "15:00",
-                "checkOut": "11:00"
-              },
-              "totalCost": 800.0,
-              "currency": "USD",
-              "travelTips": [
-                "Book accommodations in advance",
-                "Download offline maps",
-                "Carry local currency"
-              ]
+                return callWithHedging(buildPrompt(request), request);
+            })
+            .onErrorMap(e -> new RuntimeException("Error calling OpenRouter API: " + e.getMessage(), e));
+    }
+
+    /**
+     * Divide un viaje largo en rangos de días que se generan en paralelo y se fusionan
+     * en un único itinerario. La latencia total se acerca a la de un rango corto.
+     * Un bloque con menos días de los pedidos hace fallar la generación entera.
+     */
+    private Mono<ItineraryResponse> generateChunked(ItineraryRequest request, int duration) {
+        List<DayRange> ranges = new ArrayList<>();
+        for (int firstDay = 1; firstDay <= duration; firstDay += chunkingDaysPerChunk) {
+            ranges.add(new DayRange(firstDay, Math.min(firstDay + chunkingDaysPerChunk - 1, duration)));
+        }
+
+        return Flux.fromIterable(ranges)
+            .flatMapSequential(range -> callWithHedging(buildPrompt(request, range.firstDay(), range.lastDay(), duration), request)
+                    .flatMap(chunk -> requireDays(chunk, range.lastDay() - range.firstDay() + 1)),
+                chunkingMaxParallel)
+            .collectList()
+            .map(chunks -> mergeChunks(request, ranges, chunks));
+    }
+
+    /**
+     * Fusiona los bloques en orden: renumera los días, recalcula sus fechas y el coste total.
+     * Cada bloque ya trae al menos los días de su rango; los que sobren se descartan.
+     * El alojamiento, la moneda y los consejos se toman del primer bloque.
+     */
+    private ItineraryResponse mergeChunks(ItineraryRequest request, List<DayRange> ranges,
+                                          List<ItineraryResponse> chunks) {
+        ItineraryResponse first = chunks.get(0);
+        LocalDate startDate = LocalDate.parse(request.getStartDate());
+        List<DayItinerary> days = new ArrayList<>();
+        double totalCost = 0.0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            List<DayItinerary> chunkDays = chunks.get(i).getDays();
+            int expected = ranges.get(i).lastDay() - ranges.get(i).firstDay() + 1;
+            for (DayItinerary day : chunkDays.subList(0, expected)) {
+                day.setDayNumber(days.size() + 1);
+                day.setDate(startDate.plusDays(days.size()).toString());
+                totalCost += day.getEstimatedCost();
+                days.add(day);
             }
-            
-            Make it realistic and detailed for %s.
-            """, 
+        }
+        totalCost += first.getAccommodation().getNightlyRate() * days.size();
+
+        return new ItineraryResponse(
             request.getDestination(),
             request.getStartDate(),
             request.getEndDate(),
-            duration,
             request.getTravelers(),
             request.getBudget(),
-            interests,
+            request.getInterests(),
+            days,
+            first.getAccommodation(),
+            totalCost,
+            first.getCurrency(),
+            first.getTravelTips()
+        );
+    }
+
+    /**
+     * Rechaza una respuesta completa en la forma pero con menos días de los pedidos: fusionarla
+     * desplazaría los días siguientes a fechas equivocadas
+     */
+    private static Mono<ItineraryResponse> requireDays(ItineraryResponse itinerary, int expected) {
+        int received = itinerary.getDays().size();
+        if (received < expected) {
+            return Mono.error(new AiResponseParseException(
+                "Error parsing AI response: got " + received + " of " + expected + " days"));
+        }
+        return Mono.just(itinerary);
+    }
+
+    /**
+     * Genera un itinerario en streaming: emite cada día en cuanto el modelo termina su JSON,
+     * seguido del alojamiento y del itinerario completo
+     */
+    public Flux<ItineraryStreamEvent> streamItinerary(ItineraryRequest request) {
+        return Flux.defer(() -> {
+            ItineraryStreamAssembler assembler = new ItineraryStreamAssembler();
+            ItineraryPrompt prompt = buildPrompt(request);
+
+            Flux<ItineraryStreamEvent> dayEvents = streamOpenRouter(prompt)
+                .concatMapIterable(assembler::append)
+                .map(dayJson -> new ItineraryStreamEvent(ItineraryStreamEvent.DAY, parseDay(dayJson)));
+
+            Flux<ItineraryStreamEvent> finalEvents = Flux.defer(() -> {
+                ModelCompletion completion = parsePartialContent(assembler.getContent(), request);
+                int streamedDays = completion.itinerary().getDays().size();
+                Mono<ItineraryResponse> itinerary = completion.truncated()
+                    ? continueTruncated(prompt, request, ROUTED, completion, truncationMaxContinuations)
+                    : Mono.just(completion.itinerary());
+
+                return itinerary.flatMapIterable(full -> {
+                    // Days recovered by a continuation have not been streamed yet
+                    List<ItineraryStreamEvent> events = new ArrayList<>();
+                    for (DayItinerary day : full.getDays().subList(Math.min(streamedDays, full.getDays().size()), full.getDays().size())) {
+                        events.add(new ItineraryStreamEvent(ItineraryStreamEvent.DAY, day));
+                    }
+                    events.add(new ItineraryStreamEvent(ItineraryStreamEvent.ACCOMMODATION, full.getAccommodation()));
+                    events.add(new ItineraryStreamEvent(ItineraryStreamEvent.COMPLETE, full));
+                    return events;
+                });
+            });
+
+            return dayEvents.concatWith(finalEvents);
+        });
+    }
+
+    private ItineraryPrompt buildPrompt(ItineraryRequest request) {
+        int duration = calculateDuration(request.getStartDate(), request.getEndDate());
+        return buildPrompt(request, 1, duration, duration);
+    }
+
+    private ItineraryPrompt buildPrompt(ItineraryRequest request, int firstDay, int lastDay, int duration) {
+        long start = System.nanoTime();
+        ItineraryPrompt prompt = promptBuilder.build(request, firstDay, lastDay, duration);
+        promptBuildTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return prompt;
+    }
+
+    /**
+     * Llamada con cobertura opcional: si el modelo principal no responde antes del percentil
+     * configurado de su latencia, se lanza el mismo prompt al modelo secundario (en el proveedor
+     * configurado para la cobertura) y se usa la primera respuesta que se parsea correctamente;
+     * la otra llamada se cancela
+     */
+    private Mono<ItineraryResponse> callWithHedging(ItineraryPrompt prompt, ItineraryRequest request) {
+        if (!hedgingEnabled) {
+            return callOpenRouter(prompt, request, ROUTED).map(ModelCompletion::itinerary);
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // A failed primary triggers the hedge right away instead of waiting for the delay
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+
+            Mono<HedgedResult> primary = callOpenRouter(prompt, request, ROUTED)
+                .doOnNext(completion -> primaryLatency.record(System.nanoTime() - start))
+                .doOnError(e -> primaryFailed.tryEmitEmpty())
+                // A cancelled primary was at least this slow: keep it in the window as a lower bound
+                .doOnCancel(() -> primaryLatency.record(System.nanoTime() - start))
+                .map(completion -> new HedgedResult(false, completion));
+
+            Mono<HedgedResult> secondary = Mono.firstWithSignal(Mono.delay(hedgeDelay()).then(), primaryFailed.asMono())
+                .doOnTerminate(hedges::increment)
+                .then(callOpenRouter(prompt, request, new ModelTarget(hedgingSecondaryProvider, hedgingSecondaryModel)))
+                .map(completion -> new HedgedResult(true, completion));
+
+            return Mono.firstWithValue(primary, secondary)
+                .doOnNext(result -> recordHedgeWin(result, System.nanoTime() - start))
+                .map(result -> result.completion().itinerary());
+        });
+    }
+
+    private Duration hedgeDelay() {
+        Duration delay = primaryLatency.percentile(hedgingDelayPercentile, hedgingInitialDelay);
+        return delay.compareTo(hedgingMinDelay) < 0 ? hedgingMinDelay : delay;
+    }
+
+    private void recordHedgeWin(HedgedResult result, long elapsedNanos) {
+        // Tagged with whoever actually answered: with routing on, the primary is not always the preferred provider
+        Counter.builder("tripmind.openrouter.hedge.wins")
+            .description("Llamadas ganadas por cada modelo en modo cobertura")
+            .tag("provider", String.valueOf(result.completion().provider()))
+            .tag("model", String.valueOf(result.completion().model()))
+            .register(meterRegistry)
+            .increment();
+
+        if (result.secondary()) {
+            Duration primaryEstimate = primaryLatency.medianAbove(elapsedNanos);
+            if (primaryEstimate != null) {
+                hedgeLatencySaved.record(primaryEstimate.toNanos() - elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Mono<ModelCompletion> callOpenRouter(ItineraryPrompt prompt, ItineraryRequest request, ModelTarget target) {
+        return callOpenRouter(prompt, request, target, truncationMaxContinuations);
+    }
+
+    /**
+     * Llamada al proveedor elegido por el router; una respuesta cortada se completa con continuaciones
+     * @return Respuesta completa, atribuida al proveedor y modelo que respondieron al prompt
+     */
+    private Mono<ModelCompletion> callOpenRouter(ItineraryPrompt prompt, ItineraryRequest request, ModelTarget target,
+                                                   int continuationsLeft) {
+        // A parse failure also counts against the provider that sent the reply
+        Mono<ModelCompletion> call = router.execute(target.provider(), provider -> {
+            String model = target.modelFor(provider);
+            Map<String, Object> requestBody = requestBody(prompt, model);
+            long start = System.nanoTime();
+            AtomicBoolean firstByte = new AtomicBoolean();
+            return provider.complete(requestBody)
+                .doOnNext(buffer -> {
+                    if (firstByte.compareAndSet(false, true)) {
+                        timeToFirstByte(provider, model, "complete").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .as(DataBufferUtils::join)
+                .timeout(upstreamTimeout())
+                .doOnNext(body -> upstreamTime(provider, model, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .doOnError(e -> upstreamTime(provider, model, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .map(body -> parseResponse(body, request).answeredBy(provider.getName(), model))
+                .doOnNext(completion -> {
+                    upstreamLatency.record(System.nanoTime() - start);
+                    recordUsage(provider, model, completion.usage());
+                });
+        });
+
+        // Shed calls never reach the router, so they do not count as failures in its circuit breakers.
+        // The continuation of a cut-off reply is a call of its own, made after this permit is released.
+        return upstreamLimiter.execute(() -> call)
+            .flatMap(completion -> completion.truncated()
+                ? continueTruncated(prompt, request, target, completion, continuationsLeft).map(completion::continuedAs)
+                : Mono.just(completion));
+    }
+
+    /**
+     * Cuerpo de /chat/completions. En modo de salida estructurada añade el esquema del itinerario,
+     * oculta el razonamiento en la respuesta y exige a OpenRouter un proveedor que admita ambos
+     */
+    private Map<String, Object> requestBody(ItineraryPrompt prompt, String model) {
+        Map<String, Object> requestBody = new LinkedHashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", List.of(
+            Map.of("role", "user", "content", prompt.content())
+        ));
+        requestBody.put("max_tokens", prompt.maxTokens());
+        requestBody.put("temperature", 0.7);
+
+        if (promptBuilder.isStructuredOutput()) {
+            requestBody.put("response_format", itinerarySchema.responseFormat(prompt.includesExtras()));
+            requestBody.put("provider", Map.of("require_parameters", true));
+            if (excludeReasoning) {
+                requestBody.put("reasoning", Map.of("exclude", true));
+            }
+        }
+        return requestBody;
+    }
+
+    /**
+     * Completa una respuesta cortada: conserva los días que llegaron completos y pide al modelo solo
+     * los que faltan (y el alojamiento y los consejos si tampoco llegaron), en lugar de regenerar todo.
+     * Una continuación que no trae todos los días que faltan hace fallar la llamada.
+     */
+    private Mono<ItineraryResponse> continueTruncated(ItineraryPrompt prompt, ItineraryRequest request, ModelTarget target,
+                                                      ModelCompletion completion, int continuationsLeft) {
+        if (!completion.cutOffByLength()) {
+            truncationCounter("unrecoverable").increment();
+            return Mono.error(new AiResponseParseException(
+                "Error parsing AI response: incomplete JSON (finish_reason " + completion.finishReason() + ")"));
+        }
+
+        int kept = Math.min(completion.itinerary().getDays().size(), prompt.dayCount());
+        int nextDay = prompt.firstDay() + kept;
+        boolean needExtras = prompt.includesExtras() && !completion.accommodationIncluded();
+        if (nextDay > prompt.lastDay() && !needExtras) {
+            // Only the travel tips were cut
+            truncationCounter("salvaged").increment();
+            return Mono.just(completion.itinerary());
+        }
+        // Without a single complete day a continuation would just be a full regeneration
+        if (continuationsLeft <= 0 || (kept == 0 && prompt.dayCount() > 0)) {
+            truncationCounter("unrecoverable").increment();
+            return Mono.error(new AiResponseParseException(
+                "Error parsing AI response: cut off by max_tokens after " + kept + " of " + prompt.dayCount() + " days"));
+        }
+
+        int duration = calculateDuration(request.getStartDate(), request.getEndDate());
+        long start = System.nanoTime();
+        ItineraryPrompt continuation = promptBuilder.buildContinuation(request, nextDay, prompt.lastDay(), duration, needExtras);
+        promptBuildTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // Counted once the continuation is known to have filled the gap; a cut-off continuation
+        // already counts as a truncation of its own
+        return callOpenRouter(continuation, request, target, continuationsLeft - 1)
+            .flatMap(rest -> requireDays(rest.itinerary(), prompt.dayCount() - kept)
+                .doOnError(e -> truncationCounter("unrecoverable").increment()))
+            .map(rest -> mergeContinuation(request, prompt, completion, kept, rest))
+            .doOnNext(merged -> truncationCounter("continued").increment());
+    }
+
+    /**
+     * Une los días salvados con los de la continuación (que ya trae al menos los que faltan),
+     * renumerados desde el primer día pedido
+     */
+    private ItineraryResponse mergeContinuation(ItineraryRequest request, ItineraryPrompt prompt,
+                                                ModelCompletion completion, int kept, ItineraryResponse rest) {
+        ItineraryResponse salvaged = completion.itinerary();
+        List<DayItinerary> days = new ArrayList<>(salvaged.getDays().subList(0, kept));
+        days.addAll(rest.getDays().subList(0, prompt.dayCount() - kept));
+
+        LocalDate startDate = LocalDate.parse(request.getStartDate());
+        double totalCost = 0.0;
+        for (int i = 0; i < days.size(); i++) {
+            DayItinerary day = days.get(i);
+            day.setDayNumber(prompt.firstDay() + i);
+            day.setDate(startDate.plusDays(prompt.firstDay() - 1L + i).toString());
+            totalCost += day.getEstimatedCost();
+        }
+
+        // The extras come from whichever reply actually contained them
+        ItineraryResponse extras = completion.accommodationIncluded() || !prompt.includesExtras() ? salvaged : rest;
+        totalCost += extras.getAccommodation().getNightlyRate() * days.size();
+
+        return new ItineraryResponse(
             request.getDestination(),
             request.getStartDate(),
             request.getEndDate(),
             request.getTravelers(),
             request.getBudget(),
-            request.getInterests().toString(),
-            request.getStartDate(),
-            request.getDestination()
+            request.getInterests(),
+            days,
+            extras.getAccommodation(),
+            totalCost,
+            extras.getCurrency(),
+            extras.getTravelTips()
         );
     }
 
-    private String callOpenRouter(String prompt) {
-        Map<String, Object> requestBody = Map.of(
-            "model", model,
-            "messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ),
-            "max_tokens", 4000,
-            "temperature", 0.7
-        );
+    /**
+     * Timeout adaptativo: un múltiplo del percentil de la latencia observada, acotado
+     * entre un mínimo y un máximo; mientras no hay muestras se usa el valor inicial
+     */
+    private Duration upstreamTimeout() {
+        Duration observed = upstreamLatency.percentile(timeoutPercentile, null);
+        if (observed == null) {
+            return timeoutInitial;
+        }
+        Duration timeout = Duration.ofNanos((long) (observed.toNanos() * timeoutMultiplier));
+        if (timeout.compareTo(timeoutMin) < 0) {
+            return timeoutMin;
+        }
+        return timeout.compareTo(timeoutMax) > 0 ? timeoutMax : timeout;
+    }
+
+    /**
+     * Llama al proveedor con stream: true y devuelve los fragmentos de contenido a medida que llegan
+     */
+    private Flux<String> streamOpenRouter(ItineraryPrompt prompt) {
+        Flux<StreamChunk> chunks = router.executeStream(null, provider -> {
+            String model = provider.getModel();
+            Map<String, Object> requestBody = requestBody(prompt, model);
+            requestBody.put("stream", true);
+            requestBody.put("stream_options", Map.of("include_usage", true));
+
+            long start = System.nanoTime();
+            AtomicBoolean firstEvent = new AtomicBoolean();
+            return provider.stream(requestBody)
+                // Reasoning deltas and keep-alive comments also count as activity
+                .timeout(timeoutStreamIdle)
+                .doOnNext(event -> {
+                    if (firstEvent.compareAndSet(false, true)) {
+                        timeToFirstByte(provider, model, "stream").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .map(this::parseChunk)
+                .doOnNext(chunk -> recordUsage(provider, model, chunk.usage()))
+                .doOnComplete(() -> upstreamTime(provider, model, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .doOnError(e -> upstreamTime(provider, model, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
 
-        return webClient.post()
-            .uri("/chat/completions")
-            .bodyValue(requestBody)
-            .retrieve()
-            .bodyToMono(String.class)
-            .block();
+        return upstreamLimiter.execute(chunks)
+            .mapNotNull(StreamChunk::content);
     }
 
-    private ItineraryResponse parseResponse(String response, ItineraryRequest request) {
+    private StreamChunk parseChunk(String chunk) {
         try {
-            JsonNode root = objectMapper.readTree(response);
-            String content = root.get("choices").get(0).get("message").get("content").asText();
-            
-            // Extract JSON from the response
-            String jsonContent = extractJsonFromContent(content);
-            JsonNode itineraryData = objectMapper.readTree(jsonContent);
-
-            // Parse the itinerary
-            List<DayItinerary> days = parseDays(itineraryData.get("days"));
-            Accommodation accommodation = parseAccommodation(itineraryData.get("accommodation"));
-            double totalCost = itineraryData.get("totalCost").asDouble();
-            String currency = itineraryData.get("currency").asText("USD");
-            List<String> travelTips = parseTravelTips(itineraryData.get("travelTips"));
-
-            return new ItineraryResponse(
-                request.getDestination(),
-                request.getStartDate(),
-                request.getEndDate(),
-                request.getTravelers(),
-                request.getBudget(),
-                request.getInterests(),
-                days,
-                accommodation,
-                totalCost,
-                currency,
-                travelTips
-            );
-        } catch (Exception e) {
-            throw new RuntimeException("Error parsing AI response: " + e.getMessage(), e);
+            return jsonReader.readChunk(chunk);
+        } catch (IOException e) {
+            throw new AiResponseParseException("Error parsing AI response: " + e.getMessage(), e);
         }
     }
 
-    private String extractJsonFromContent(String content) {
-        int start = content.indexOf("{");
-        int end = content.lastIndexOf("}") + 1;
-        
-        if (start != -1 && end > start) {
-            return content.substring(start, end);
+    /**
+     * Registra el consumo de tokens informado por OpenRouter en el bloque "usage"
+     */
+    private void recordUsage(LlmProvider provider, String model, TokenUsage usage) {
+        if (usage == null) {
+            return;
         }
-        
-        return content;
+        tokenSummary("prompt", provider, model).record(usage.promptTokens());
+        tokenSummary("completion", provider, model).record(usage.completionTokens());
+        tokenSummary("cached", provider, model).record(usage.cachedTokens());
     }
 
-    private List<DayItinerary> parseDays(JsonNode daysNode) {
-        List<DayItinerary> days = new ArrayList<>();
-        if (daysNode != null && daysNode.isArray()) {
-            for (JsonNode dayNode : daysNode) {
-                days.add(parseDay(dayNode));
-            }
-        }
-        return days;
+    private Counter truncationCounter(String outcome) {
+        return Counter.builder("tripmind.openrouter.truncations")
+            .description("Respuestas cortadas por max_tokens: salvadas, completadas con una continuación o perdidas")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
     }
 
-    private DayItinerary parseDay(JsonNode dayNode) {
-        int dayNumber = dayNode.get("dayNumber").asInt();
-        String date = dayNode.get("date").asText();
-        String title = dayNode.get("title").asText();
-        
-        List<Activity> morningActivities = parseActivities(dayNode.get("morningActivities"));
-        List<Activity> afternoonActivities = parseActivities(dayNode.get("afternoonActivities"));
-        List<Activity> eveningActivities = parseActivities(dayNode.get("eveningActivities"));
-        List<Restaurant> restaurants = parseRestaurants(dayNode.get("restaurants"));
-        
-        String summary = dayNode.get("summary").asText();
-        double estimatedCost = dayNode.get("estimatedCost").asDouble();
-
-        return new DayItinerary(
-            dayNumber, date, title,
-            morningActivities, afternoonActivities, eveningActivities,
-            restaurants, summary, estimatedCost
-        );
+    private Timer upstreamTime(LlmProvider provider, String model, String outcome) {
+        return Timer.builder("tripmind.openrouter.upstream")
+            .description("Duración de las llamadas HTTP a OpenRouter, hasta recibir el cuerpo completo")
+            .tag("provider", provider.getName())
+            .tag("model", model)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
     }
 
-    private List<Activity> parseActivities(JsonNode activitiesNode) {
-        List<Activity> activities = new ArrayList<>();
-        if (activitiesNode != null && activitiesNode.isArray()) {
-            for (JsonNode activityNode : activitiesNode) {
-                activities.add(new Activity(
-                    activityNode.get("name").asText(),
-                    activityNode.get("description").asText(),
-                    activityNode.get("time").asText(),
-                    activityNode.get("duration").asText(),
-                    activityNode.get("location").asText(),
-                    activityNode.get("category").asText(),
-                    activityNode.get("cost").asDouble(),
-                    activityNode.get("currency").asText("USD"),
-                    activityNode.get("emoji").asText("📍"),
-                    activityNode.get("bookingUrl").asText(""),
-                    activityNode.get("tips").asText("")
-                ));
-            }
-        }
-        return activities;
+    private Timer timeToFirstByte(LlmProvider provider, String model, String mode) {
+        return Timer.builder("tripmind.openrouter.ttfb")
+            .description("Tiempo hasta el primer byte (o primer evento en streaming) de OpenRouter")
+            .tag("provider", provider.getName())
+            .tag("model", model)
+            .tag("mode", mode)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
     }
 
-    private List<Restaurant> parseRestaurants(JsonNode restaurantsNode) {
-        List<Restaurant> restaurants = new ArrayList<>();
-        if (restaurantsNode != null && restaurantsNode.isArray()) {
-            for (JsonNode restaurantNode : restaurantsNode) {
-                restaurants.add(new Restaurant(
-                    restaurantNode.get("name").asText(),
-                    restaurantNode.get("cuisine").asText(),
-                    restaurantNode.get("description").asText(),
-                    restaurantNode.get("address").asText(),
-                    restaurantNode.get("phone").asText(),
-                    restaurantNode.get("priceRange").asText(),
-                    restaurantNode.get("rating").asDouble(),
-                    restaurantNode.get("mealType").asText(),
-                    restaurantNode.get("bookingUrl").asText(""),
-                    restaurantNode.get("tips").asText("")
-                ));
-            }
+    private DistributionSummary tokenSummary(String type, LlmProvider provider, String model) {
+        return DistributionSummary.builder("tripmind.openrouter.tokens")
+            .description("Tokens por llamada a OpenRouter")
+            .baseUnit("tokens")
+            .tag("type", type)
+            .tag("provider", provider.getName())
+            .tag("model", model)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private DayItinerary parseDay(String dayJson) {
+        try {
+            return jsonReader.readDay(dayJson);
+        } catch (IOException e) {
+            throw new AiResponseParseException("Error parsing AI response: " + e.getMessage(), e);
         }
-        return restaurants;
     }
 
-    private Accommodation parseAccommodation(JsonNode accommodationNode) {
-        if (accommodationNode == null) {
-            return new Accommodation(
-                "Default Hotel", "Hotel", "Comfortable accommodation",
-                "123 Main Street", "+1-234-567-8900", 4.0, "$$",
-                100.0, "USD", "WiFi, Pool", "", "15:00", "11:00"
-            );
+    private ModelCompletion parsePartialContent(String content, ItineraryRequest request) {
+        long start = System.nanoTime();
+        try {
+            return jsonReader.readPartialContent(content, request);
+        } catch (IOException e) {
+            throw new AiResponseParseException("Error parsing AI response: " + e.getMessage(), e);
+        } finally {
+            parseTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        
-        return new Accommodation(
-            accommodationNode.get("name").asText(),
-            accommodationNode.get("type").asText(),
-            accommodationNode.get("description").asText(),
-            accommodationNode.get("address").asText(),
-            accommodationNode.get("phone").asText(),
-            accommodationNode.get("rating").asDouble(),
-            accommodationNode.get("priceRange").asText(),
-            accommodationNode.get("nightlyRate").asDouble(),
-            accommodationNode.get("currency").asText("USD"),
-            accommodationNode.get("amenities").asText(),
-            accommodationNode.get("bookingUrl").asText(""),
-            accommodationNode.get("checkIn").asText("15:00"),
-            accommodationNode.get("checkOut").asText("11:00")
-        );
     }
 
-    private List<String> parseTravelTips(JsonNode tipsNode) {
-        List<String> tips = new ArrayList<>();
-        if (tipsNode != null && tipsNode.isArray()) {
-            for (JsonNode tipNode : tipsNode) {
-                tips.add(tipNode.asText());
-            }
+    /**
+     * Une los DataBuffers de la respuesta y los lee en streaming, sin pasar por String
+     * ni por el límite maxInMemorySize de los codecs
+     */
+    private ModelCompletion parseResponse(DataBuffer body, ItineraryRequest request) {
+        long start = System.nanoTime();
+        try (InputStream envelope = body.asInputStream(true)) {
+            return jsonReader.readCompletion(envelope, request, promptBuilder.isStructuredOutput());
+        } catch (IOException e) {
+            throw new AiResponseParseException("Error parsing AI response: " + e.getMessage(), e);
+        } finally {
+            parseTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        return tips;
     }
 
     private int calculateDuration(String startDate, String endDate) {
@@ -328,4 +634,22 @@ public class OpenRouterService {
         LocalDate end = LocalDate.parse(endDate);
         return (int) ChronoUnit.DAYS.between(start, end) + 1;
     }
+
+    /**
+     * Rango de días del viaje, ambos extremos incluidos (numeración desde 1)
+     */
+    private record DayRange(int firstDay, int lastDay) {}
+
+    /**
+     * Proveedor y modelo de una llamada; sin proveedor la elige el router con el modelo de cada proveedor.
+     * El modelo fijado solo se pide al proveedor fijado, si el router no lo tiene habilitado se usa el suyo
+     */
+    private record ModelTarget(String provider, String model) {
+
+        String modelFor(LlmProvider chosen) {
+            return model != null && chosen.getName().equals(provider) ? model : chosen.getModel();
+        }
+    }
+
+    private record HedgedResult(boolean secondary, ModelCompletion completion) {}
 }
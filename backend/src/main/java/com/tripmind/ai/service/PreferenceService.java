@@ -0,0 +1,47 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.cache.PreferenceCache;
+import com.tripmind.ai.persistence.PreferenceRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Servicio para las preferencias de usuario, con caché de lectura delante de la base de datos
+ */
+@Service
+public class PreferenceService {
+
+    private final PreferenceRepository preferenceRepository;
+    private final PreferenceCache preferenceCache;
+
+    public PreferenceService(PreferenceRepository preferenceRepository, PreferenceCache preferenceCache) {
+        this.preferenceRepository = preferenceRepository;
+        this.preferenceCache = preferenceCache;
+    }
+
+    /**
+     * Obtiene las preferencias del usuario
+     * @param userId ID del usuario
+     * @return Preferencias del usuario, vacío si no tiene
+     */
+    public Optional<String> getPreferences(String userId) {
+        return preferenceCache.get(userId, preferenceRepository::findByUserId);
+    }
+
+    /**
+     * Guarda las preferencias del usuario y actualiza la caché
+     * @param userId ID del usuario
+     * @param preferences Preferencias serializadas
+     */
+    public void savePreferences(String userId, String preferences) {
+        try {
+            preferenceRepository.save(userId, preferences);
+        } catch (RuntimeException e) {
+            // A failed write may still have committed: drop the entry instead of trusting it
+            preferenceCache.invalidate(userId);
+            throw e;
+        }
+        preferenceCache.put(userId, preferences);
+    }
+}
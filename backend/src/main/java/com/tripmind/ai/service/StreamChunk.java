@@ -0,0 +1,8 @@
+package com.tripmind.ai.service;
+
+/**
+ * Fragmento de una respuesta en streaming de OpenRouter
+ * @param content Texto incremental (choices[0].delta.content) o null
+ * @param usage Consumo de tokens, presente solo en el último fragmento
+ */
+public record StreamChunk(String content, TokenUsage usage) {}
@@ -0,0 +1,51 @@
+package com.tripmind.ai.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin bloqueos, implementado como GCRA: en lugar de contar tokens guarda el instante
+ * teórico en que el bucket vuelve a estar vacío, de modo que cada comprobación es un CAS
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param tokensPerSecond Ritmo de recarga
+     * @param capacity Tokens disponibles en ráfaga
+     * @param nowNanos Instante actual (System.nanoTime); el bucket empieza lleno
+     */
+    public TokenBucket(double tokensPerSecond, int capacity, long nowNanos) {
+        this.intervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = intervalNanos * capacity;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Intenta consumir un token
+     * @param nowNanos Instante actual (System.nanoTime)
+     * @return 0 si se concedió, o los nanosegundos que faltan para el siguiente token
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long excess = next - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Si el bucket lleva lleno (sin uso) al menos el tiempo indicado
+     */
+    public boolean isIdle(long nowNanos, long idleNanos) {
+        return nowNanos - theoreticalArrival.get() > idleNanos;
+    }
+}
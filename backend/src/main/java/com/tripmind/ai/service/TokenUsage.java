@@ -0,0 +1,9 @@
+package com.tripmind.ai.service;
+
+/**
+ * Bloque "usage" de una respuesta de OpenRouter
+ * @param promptTokens Tokens de entrada
+ * @param completionTokens Tokens de salida (incluye razonamiento)
+ * @param cachedTokens Tokens de entrada servidos desde la caché de prompts del proveedor
+ */
+public record TokenUsage(int promptTokens, int completionTokens, int cachedTokens) {}
@@ -0,0 +1,11 @@
+package com.tripmind.ai.service;
+
+/**
+ * Se lanza cuando la cola de escritura diferida de viajes está llena y el guardado no se acepta
+ */
+public class TripQueueFullException extends RuntimeException {
+
+    public TripQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,265 @@
+package com.tripmind.ai.service;
+
+import com.tripmind.ai.persistence.Trip;
+import com.tripmind.ai.persistence.TripRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio para la persistencia de viajes con escritura diferida: los guardados se encolan y
+ * un único hilo los escribe en batches JDBC cuando se llena el batch o vence el intervalo.
+ * El llamante recibe el ID al instante y las lecturas ven los viajes aún pendientes.
+ * Si un batch falla por los datos de alguna fila, se reescribe fila a fila para descartar solo esa.
+ */
+@Service
+public class TripStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TripStore.class);
+    // Column sizes in schema.sql
+    private static final int MAX_USER_ID_LENGTH = 128;
+
+    private final TripRepository tripRepository;
+    private final BlockingQueue<Trip> queue;
+    private final Map<String, Trip> pending = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    private final DistributionSummary batchSizes;
+    private final Timer flushTime;
+    private final Timer writeLag;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public TripStore(TripRepository tripRepository,
+                     @Value("${app.persistence.trips.queue-capacity:10000}") int queueCapacity,
+                     @Value("${app.persistence.trips.batch-size:100}") int batchSize,
+                     @Value("${app.persistence.trips.flush-interval:200ms}") Duration flushInterval,
+                     @Value("${app.persistence.trips.max-attempts:5}") int maxAttempts,
+                     @Value("${app.persistence.trips.retry-backoff:500ms}") Duration retryBackoff,
+                     MeterRegistry meterRegistry) {
+        this.tripRepository = tripRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+
+        this.batchSizes = DistributionSummary.builder("tripmind.trips.write-behind.batch-size")
+            .description("Viajes escritos por batch JDBC")
+            .baseUnit("trips")
+            .register(meterRegistry);
+        this.flushTime = Timer.builder("tripmind.trips.write-behind.flush")
+            .description("Duración de cada batch JDBC de viajes")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.writeLag = Timer.builder("tripmind.trips.write-behind.lag")
+            .description("Tiempo desde que se acepta un viaje hasta que queda escrito en base de datos")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.rejected = Counter.builder("tripmind.trips.write-behind.rejected")
+            .description("Guardados rechazados por cola llena")
+            .register(meterRegistry);
+        this.failed = Counter.builder("tripmind.trips.write-behind.failed")
+            .description("Viajes descartados por datos que la base de datos rechaza o tras agotar los reintentos")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.trips.write-behind.queue", queue, BlockingQueue::size)
+            .description("Viajes en cola pendientes de escribir")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.trips.write-behind.pending", pending, Map::size)
+            .description("Viajes aceptados aún no escritos (en cola o en el batch en curso)")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("trip-writer").daemon(true).start(this::writeLoop);
+    }
+
+    /**
+     * Al apagar se deja de aceptar trabajo y se escribe lo que quede en cola
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Acepta un viaje para guardarlo en segundo plano
+     * @param userId ID del usuario
+     * @param tripData Datos del viaje
+     * @return ID del viaje, válido de inmediato para lecturas
+     * @throws IllegalArgumentException si faltan el usuario o los datos del viaje, o el usuario es demasiado largo
+     * @throws TripQueueFullException si la cola de escritura está llena
+     */
+    public String save(String userId, String tripData) {
+        if (userId == null || userId.isBlank() || tripData == null) {
+            throw new IllegalArgumentException("userId and tripData are required");
+        }
+        // Checked here because a row the database rejects would fail the whole batch it lands in
+        if (userId.length() > MAX_USER_ID_LENGTH) {
+            throw new IllegalArgumentException("userId must be at most " + MAX_USER_ID_LENGTH + " characters");
+        }
+        Trip trip = new Trip("trip_" + UUID.randomUUID(), userId, tripData, Instant.now());
+        pending.put(trip.id(), trip);
+        if (!running || !queue.offer(trip)) {
+            pending.remove(trip.id());
+            rejected.increment();
+            throw new TripQueueFullException("Trip write queue is full");
+        }
+        return trip.id();
+    }
+
+    /**
+     * Busca un viaje, incluidos los aceptados que aún no se han escrito
+     * @param id ID del viaje
+     * @return Viaje, si existe
+     */
+    public Optional<Trip> find(String id) {
+        Trip trip = pending.get(id);
+        return trip != null ? Optional.of(trip) : tripRepository.findById(id);
+    }
+
+    private void writeLoop() {
+        List<Trip> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Trip first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Wait for a full batch, but never longer than the interval since the first trip
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    Trip next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and flush what is left
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            flush(batch.subList(from, Math.min(from + batchSize, batch.size())));
+        }
+    }
+
+    private void flush(List<Trip> batch) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                tripRepository.saveAll(batch);
+                flushTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                written(batch);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (batch.size() == 1) {
+                    // IDs are random UUIDs: the row is already there from a batch that failed part way
+                    written(batch);
+                    return;
+                }
+                flushRowByRow(batch, e);
+                return;
+            } catch (NonTransientDataAccessException e) {
+                // Retrying the same rows cannot help, unless the database itself is unreachable
+                if (!(e instanceof NonTransientDataAccessResourceException)) {
+                    if (batch.size() == 1) {
+                        drop(batch, e);
+                    } else {
+                        flushRowByRow(batch, e);
+                    }
+                    return;
+                }
+                log.warn("Trip batch of {} failed (attempt {}/{}): {}", batch.size(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    sleep(retryBackoff.multipliedBy(attempt));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Trip batch of {} failed (attempt {}/{}): {}", batch.size(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    sleep(retryBackoff.multipliedBy(attempt));
+                }
+            }
+        }
+
+        log.error("Dropping {} trips after {} failed attempts: {}", batch.size(), maxAttempts,
+            batch.stream().map(Trip::id).toList());
+        failed.increment(batch.size());
+        batch.forEach(trip -> pending.remove(trip.id()));
+    }
+
+    private void flushRowByRow(List<Trip> batch, RuntimeException cause) {
+        log.warn("Trip batch of {} rejected by the database, writing row by row: {}", batch.size(), cause.getMessage());
+        for (Trip trip : batch) {
+            flush(List.of(trip));
+        }
+    }
+
+    private void written(List<Trip> batch) {
+        Instant now = Instant.now();
+        for (Trip trip : batch) {
+            writeLag.record(Duration.between(trip.createdAt(), now));
+            pending.remove(trip.id());
+        }
+    }
+
+    private void drop(List<Trip> batch, RuntimeException cause) {
+        for (Trip trip : batch) {
+            log.error("Dropping trip {} of user {}: {}", trip.id(), trip.userId(), cause.getMessage());
+            pending.remove(trip.id());
+        }
+        failed.increment(batch.size());
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            // Shutdown: keep retrying, just without waiting
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.tripmind.ai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Límite adaptativo de llamadas concurrentes a OpenRouter. El límite sigue la latencia observada
+ * (algoritmo de gradiente): mientras la latencia reciente se mantiene cerca de la de largo plazo
+ * crece, y cuando el proveedor empieza a encolar se reduce. Las llamadas por encima del límite
+ * esperan en una cola corta y acotada; si no hay sitio o la espera vence, se descartan al instante
+ * con UpstreamLimitExceededException en lugar de acabar en un timeout.
+ */
+@Component
+public class UpstreamConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final Duration acquireTimeout;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long samples;
+
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public UpstreamConcurrencyLimiter(@Value("${app.execution.upstream.initial-limit:20}") int initialLimit,
+                                      @Value("${app.execution.upstream.min-limit:4}") int minLimit,
+                                      @Value("${app.execution.upstream.max-concurrent:64}") int maxLimit,
+                                      @Value("${app.execution.upstream.max-queue:32}") int maxQueue,
+                                      @Value("${app.execution.upstream.acquire-timeout:2s}") Duration acquireTimeout,
+                                      @Value("${app.execution.upstream.tolerance:1.5}") double tolerance,
+                                      @Value("${app.execution.upstream.smoothing:0.2}") double smoothing,
+                                      @Value("${app.execution.upstream.backoff-ratio:0.9}") double backoffRatio,
+                                      MeterRegistry meterRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.acquireTimeout = acquireTimeout;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+
+        this.waitTimer = Timer.builder("tripmind.upstream.limiter.wait")
+            .description("Tiempo de espera por un permiso para llamar a OpenRouter")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue_full");
+        this.rejectedTimeout = rejectedCounter(meterRegistry, "timeout");
+        Gauge.builder("tripmind.upstream.limiter.limit", this, UpstreamConcurrencyLimiter::getLimit)
+            .description("Límite actual de llamadas concurrentes a OpenRouter")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.upstream.limiter.in-flight", this, UpstreamConcurrencyLimiter::inFlight)
+            .description("Llamadas a OpenRouter en curso")
+            .register(meterRegistry);
+        Gauge.builder("tripmind.upstream.limiter.queued", this, UpstreamConcurrencyLimiter::queued)
+            .description("Llamadas esperando un permiso para llamar a OpenRouter")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta una llamada dentro del límite; la latencia de las que terminan bien ajusta el límite
+     * @param call Llamada al proveedor
+     * @return Resultado de la llamada, o UpstreamLimitExceededException si se descarta
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return acquire().flatMap(permit -> Mono.defer(call)
+            .doOnSuccess(value -> permit.release(true, false))
+            .doOnError(e -> permit.release(false, FallbackCause.of(e) == FallbackCause.TIMEOUT))
+            .doOnCancel(() -> permit.release(false, false)));
+    }
+
+    /**
+     * Ejecuta una llamada en streaming dentro del límite. Su duración depende de la longitud de la
+     * respuesta, así que solo los timeouts ajustan el límite.
+     * @param call Llamada al proveedor
+     * @return Flujo de la llamada, o UpstreamLimitExceededException si se descarta
+     */
+    public <T> Flux<T> execute(Flux<T> call) {
+        return acquire().flatMapMany(permit -> call
+            .doOnComplete(() -> permit.release(false, false))
+            .doOnError(e -> permit.release(false, FallbackCause.of(e) == FallbackCause.TIMEOUT))
+            .doOnCancel(() -> permit.release(false, false)));
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Waiter waiter;
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    waitTimer.record(0, TimeUnit.NANOSECONDS);
+                    return Mono.just(new Permit());
+                }
+                if (waiters.size() >= maxQueue) {
+                    rejectedQueueFull.increment();
+                    return Mono.error(new UpstreamLimitExceededException(
+                        "Upstream concurrency limit reached (" + (int) limit + " in flight, queue full)"));
+                }
+                waiter = new Waiter(new CompletableFuture<>());
+                waiters.addLast(waiter);
+            }
+
+            return Mono.fromFuture(waiter.permit(), true)
+                .timeout(acquireTimeout, Mono.defer(() -> {
+                    abandon(waiter, true);
+                    return Mono.fromFuture(waiter.permit(), true);
+                }))
+                .doOnCancel(() -> abandon(waiter, false))
+                .doFinally(signal -> waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Saca de la cola a quien deja de esperar. Si el permiso ya se le había concedido, al expirar
+     * se usa igualmente y al cancelar se devuelve.
+     */
+    private void abandon(Waiter waiter, boolean timedOut) {
+        boolean removed;
+        synchronized (this) {
+            removed = waiters.remove(waiter);
+        }
+        if (removed) {
+            if (timedOut) {
+                rejectedTimeout.increment();
+            }
+            waiter.permit().completeExceptionally(new UpstreamLimitExceededException(
+                "Timed out after " + acquireTimeout.toMillis() + " ms waiting for an upstream permit"));
+        } else if (!timedOut) {
+            waiter.permit().thenAccept(permit -> permit.release(false, false));
+        }
+    }
+
+    private void onRelease(long rttNanos, boolean success, boolean dropped) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (dropped) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (success) {
+                updateLimit(rttNanos);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                granted.add(waiters.pollFirst());
+            }
+        }
+        // Completed outside the lock: the waiter's call starts on this thread
+        for (Waiter waiter : granted) {
+            waiter.permit().complete(new Permit());
+        }
+    }
+
+    /**
+     * Gradiente entre la latencia de largo plazo y la reciente: 1 si el proveedor no se ha frenado,
+     * menor que 1 si la latencia reciente crece. A eso se suma un margen de sqrt(límite) para
+     * seguir explorando hacia arriba.
+     */
+    private void updateLimit(long rttNanos) {
+        samples++;
+        if (samples == 1) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * 0.1;
+        longRttNanos += (rttNanos - longRttNanos) * 0.005;
+        // After a lasting shift in latency the long-term average catches up faster
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        // Only grow while the limit is actually being used
+        if (inFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+    }
+
+    /**
+     * Límite actual de llamadas concurrentes
+     */
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    /**
+     * Número de llamadas en curso
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private synchronized int queued() {
+        return waiters.size();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tripmind.upstream.limiter.rejected")
+            .description("Llamadas a OpenRouter descartadas por el límite de concurrencia")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    private record Waiter(CompletableFuture<Permit> permit) {}
+
+    /**
+     * Permiso concedido; se devuelve una sola vez, al terminar, fallar o cancelar la llamada
+     */
+    private final class Permit {
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        void release(boolean success, boolean dropped) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            onRelease(System.nanoTime() - start, success, dropped);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.tripmind.ai.service;
+
+/**
+ * Se lanza cuando el límite de concurrencia hacia el proveedor está lleno y la llamada se descarta
+ * en lugar de esperar
+ */
+public class UpstreamLimitExceededException extends RuntimeException {
+
+    public UpstreamLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS trips (
+    id         VARCHAR(64)  PRIMARY KEY,
+    user_id    VARCHAR(128) NOT NULL,
+    trip_data  TEXT         NOT NULL,
+    created_at TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_trips_user_id ON trips (user_id);
+
+CREATE TABLE IF NOT EXISTS user_preferences (
+    user_id     VARCHAR(128) PRIMARY KEY,
+    preferences TEXT         NOT NULL,
+    updated_at  TIMESTAMP    NOT NULL
+);
@@ -0,0 +1,149 @@
+package com.tripmind.ai.provider;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tripmind.ai.loadtest.OpenRouterSimulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Circuitos por proveedor del router, contra dos simuladores de OpenRouter: uno que responde
+ * bien y otro que falla todas las llamadas
+ */
+class LlmProviderRouterTest {
+
+    private static final Pattern REQUESTS = Pattern.compile("requests=(\\d+)");
+    private static final Map<String, Object> BODY = Map.of(
+        "model", "test/model",
+        "messages", List.of(Map.of("role", "user", "content", "Plan a trip to Rome (3 days)")));
+    // Four failures in a row open the circuit, and it stays open for the whole test
+    private static final ProviderCircuitBreaker.Settings CIRCUIT =
+        new ProviderCircuitBreaker.Settings(4, 4, 0.5, Duration.ofMinutes(5), 1);
+
+    private HttpServer healthy;
+    private HttpServer failing;
+
+    @BeforeEach
+    void startSimulators() throws Exception {
+        healthy = OpenRouterSimulator.start("--port=0", "--latency=fixed:0s");
+        failing = OpenRouterSimulator.start("--port=0", "--latency=fixed:0s", "--error-rate=1");
+    }
+
+    @AfterEach
+    void stopSimulators() {
+        healthy.stop(0);
+        failing.stop(0);
+    }
+
+    @Test
+    void skipsPreferredProviderOnceItsCircuitOpens() {
+        LlmProviderRouter router = router(false, provider("primary", failing), provider("backup", healthy));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> call(router, null)).isNotInstanceOf(CircuitOpenException.class);
+        }
+
+        assertThat(call(router, null)).isEqualTo("backup");
+        assertThat(call(router, null)).isEqualTo("backup");
+        assertThat(router.allCircuitsOpen()).isFalse();
+        assertThat(requests(failing)).isEqualTo(4);
+        assertThat(requests(healthy)).isEqualTo(2);
+    }
+
+    @Test
+    void routesAroundOpenCircuitWhenRoutingIsEnabled() {
+        LlmProviderRouter router = router(true, provider("primary", failing), provider("backup", healthy));
+
+        // Until the failing provider has four results some calls still reach it
+        int attempts = 0;
+        while (requests(failing) < 4) {
+            try {
+                call(router, null);
+            } catch (RuntimeException e) {
+                assertThat(e).isNotInstanceOf(CircuitOpenException.class);
+            }
+            assertThat(++attempts).isLessThan(1000);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(call(router, null)).isEqualTo("backup");
+        }
+        assertThat(requests(failing)).isEqualTo(4);
+    }
+
+    @Test
+    void failsPinnedCallWithoutReachingProviderWhenItsCircuitIsOpen() {
+        LlmProviderRouter router = router(false, provider("primary", healthy), provider("secondary", failing));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> call(router, "secondary")).isNotInstanceOf(CircuitOpenException.class);
+        }
+
+        assertThatThrownBy(() -> call(router, "secondary")).isInstanceOf(CircuitOpenException.class);
+        assertThat(requests(failing)).isEqualTo(4);
+        assertThat(call(router, null)).isEqualTo("primary");
+    }
+
+    @Test
+    void rejectsCallsOnceEveryCircuitIsOpen() {
+        LlmProviderRouter router = router(false, provider("primary", failing));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> call(router, null)).isNotInstanceOf(CircuitOpenException.class);
+        }
+
+        assertThat(router.allCircuitsOpen()).isTrue();
+        assertThatThrownBy(() -> call(router, null)).isInstanceOf(CircuitOpenException.class);
+        assertThat(requests(failing)).isEqualTo(4);
+    }
+
+    private static LlmProviderRouter router(boolean routingEnabled, LlmProvider... providers) {
+        return new LlmProviderRouter(List.of(providers), providers[0].getName(), routingEnabled,
+            0.2, 0.5, 0.05, CIRCUIT, new SimpleMeterRegistry());
+    }
+
+    private static LlmProvider provider(String name, HttpServer simulator) {
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl(simulator)).build();
+        return new OpenAiCompatibleProvider(name, "test/model", webClient, true, false);
+    }
+
+    /**
+     * Hace una llamada completa y devuelve el nombre del proveedor que respondió
+     */
+    private static String call(LlmProviderRouter router, String pinned) {
+        return router.execute(pinned, provider -> DataBufferUtils.join(provider.complete(BODY))
+                .map(body -> {
+                    DataBufferUtils.release(body);
+                    return provider.getName();
+                }))
+            .block(Duration.ofSeconds(10));
+    }
+
+    private static int requests(HttpServer simulator) {
+        String stats = WebClient.create(baseUrl(simulator)).get().uri("/stats")
+            .retrieve()
+            .bodyToMono(String.class)
+            .switchIfEmpty(Mono.just(""))
+            .block(Duration.ofSeconds(10));
+        Matcher matcher = REQUESTS.matcher(stats);
+        assertThat(matcher.find()).isTrue();
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static String baseUrl(HttpServer simulator) {
+        return "http://localhost:" + simulator.getAddress().getPort();
+    }
+}